@@ -117,6 +117,9 @@ dependencies {
         isTransitive = false
     }
 
+    val junitVersion: String by project
+    testImplementation("junit:junit:$junitVersion")
+
     /*
     val gregTech6Version: String by project
     compile("com.gregoriust.gregtech:gregtech_$minecraftVersion:$gregTech6Version:dev")
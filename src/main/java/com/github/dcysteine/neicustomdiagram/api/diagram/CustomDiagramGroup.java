@@ -65,7 +65,7 @@ public class CustomDiagramGroup extends DiagramGroup {
     protected Collection<Diagram> matchDiagrams(
             String id, Interactable.RecipeType recipeType, Object... stacks) {
         if (customBehaviorMap.containsKey(id)) {
-            return customBehaviorMap.get(id).get();
+            return filterEmptyDiagrams(customBehaviorMap.get(id).get());
         }
 
         return super.matchDiagrams(id, recipeType, stacks);
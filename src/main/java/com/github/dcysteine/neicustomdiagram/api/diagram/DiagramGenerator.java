@@ -2,5 +2,24 @@ package com.github.dcysteine.neicustomdiagram.api.diagram;
 
 public interface DiagramGenerator {
     DiagramGroupInfo info();
+
+    /**
+     * Generates the diagram group.
+     *
+     * <p>Diagram generators with several independent initialization phases can use
+     * {@link GenerationPhases} to run them concurrently.
+     */
     DiagramGroup generate();
+
+    /**
+     * Returns whether {@link #generate()} must be called on the main client thread.
+     *
+     * <p>If parallel generation is enabled, diagram generators for which this returns
+     * {@code false} may be generated concurrently, on worker threads. Override this to return
+     * {@code true} if your diagram generator touches thread-unsafe Minecraft state during
+     * generation.
+     */
+    default boolean requiresMainThread() {
+        return false;
+    }
 }
@@ -16,20 +16,26 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.InteractiveComponentGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.DiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.GlobalComponentIndex;
 import com.github.dcysteine.neicustomdiagram.api.draw.Dimension;
 import com.github.dcysteine.neicustomdiagram.api.draw.GuiManager;
 import com.github.dcysteine.neicustomdiagram.api.draw.Point;
+import com.github.dcysteine.neicustomdiagram.main.LookupReport;
+import com.github.dcysteine.neicustomdiagram.main.LookupStatistics;
 import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
 import com.google.common.collect.ImmutableList;
 import net.minecraft.client.gui.inventory.GuiContainer;
 import net.minecraft.inventory.Container;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.fluids.FluidStack;
 
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -37,6 +43,7 @@ public class DiagramGroup implements ICraftingHandler, IUsageHandler {
     protected final DiagramGroupInfo info;
     protected final DiagramMatcher matcher;
     protected final Supplier<DiagramState> diagramStateSupplier;
+    protected final LookupStatistics lookupStatistics;
 
     protected final GuiManager guiManager;
     protected final DiagramState diagramState;
@@ -48,10 +55,15 @@ public class DiagramGroup implements ICraftingHandler, IUsageHandler {
         this.info = info;
         this.matcher = matcher;
         this.diagramStateSupplier = diagramStateSupplier;
+        this.lookupStatistics = LookupReport.INSTANCE.forGroup(info.groupId());
 
         this.guiManager = new GuiManager();
         this.diagramState = diagramStateSupplier.get();
         this.diagrams = ImmutableList.of();
+
+        if (info.hasEmptyDiagramPredicate()) {
+            matcher.precomputeEmptiness(info.emptyDiagramPredicate());
+        }
     }
 
     public DiagramGroup(DiagramGroupInfo info, DiagramMatcher matcher) {
@@ -62,6 +74,7 @@ public class DiagramGroup implements ICraftingHandler, IUsageHandler {
         this.info = parent.info;
         this.matcher = parent.matcher;
         this.diagramStateSupplier = parent.diagramStateSupplier;
+        this.lookupStatistics = parent.lookupStatistics;
 
         this.guiManager = new GuiManager();
         this.diagramState = this.diagramStateSupplier.get();
@@ -72,6 +85,10 @@ public class DiagramGroup implements ICraftingHandler, IUsageHandler {
         return info;
     }
 
+    public DiagramMatcher matcher() {
+        return matcher;
+    }
+
     /** Subclasses will need to override this to use their own constructor. */
     public DiagramGroup newInstance(Iterable<? extends Diagram> diagrams) {
         return new DiagramGroup(this, diagrams);
@@ -97,18 +114,19 @@ public class DiagramGroup implements ICraftingHandler, IUsageHandler {
         return diagrams.size();
     }
 
+    /**
+     * May be called concurrently from NEI worker threads. Each call returns a new diagram group
+     * with its own GUI state, so only the matcher is shared between threads.
+     *
+     * <p>The time taken and number of diagrams found are recorded in the {@link LookupReport}.
+     */
     public DiagramGroup loadDiagrams(
             String id, Interactable.RecipeType recipeType, Object... stacks) {
-        Collection<Diagram> matchingDiagrams = matchDiagrams(id, recipeType, stacks);
-
-        if (!ConfigOptions.SHOW_EMPTY_DIAGRAMS.get()) {
-            matchingDiagrams =
-                    matchingDiagrams.stream()
-                            .filter(diagram -> !info.emptyDiagramPredicate().test(diagram))
-                            .collect(Collectors.toList());
-        }
+        long startTime = System.nanoTime();
+        Collection<Diagram> matchedDiagrams = matchDiagrams(id, recipeType, stacks);
+        lookupStatistics.record(System.nanoTime() - startTime, matchedDiagrams.size());
 
-        return newInstance(matchingDiagrams);
+        return newInstance(matchedDiagrams);
     }
 
     /**
@@ -116,11 +134,20 @@ public class DiagramGroup implements ICraftingHandler, IUsageHandler {
      *
      * <p>Subclasses should generally override / extend this method, leaving the general logic in
      * {@link #loadDiagrams(String, Interactable.RecipeType, Object...)} un-overridden.
+     *
+     * <p>Empty diagrams must be excluded if {@link #excludeEmptyDiagrams()} returns {@code true}.
+     * Diagrams that come from the matcher are excluded up-front by the matcher; any other diagrams
+     * can be excluded with {@link #filterEmptyDiagrams(Collection)}.
+     *
+     * <p>If NEI passes several stacks, such as all items in an ore dictionary entry, diagrams
+     * matching any of them are returned, each at most once.
      */
     protected Collection<Diagram> matchDiagrams(
             String id, Interactable.RecipeType recipeType, Object... stacks) {
+        boolean excludeEmptyDiagrams = excludeEmptyDiagrams();
         if (id.equals(info.groupId())) {
-            return matcher.all();
+            return excludeEmptyDiagrams
+                    ? matcher.allNonEmpty(info.emptyDiagramPredicate()) : matcher.all();
         }
 
         if (!ConfigOptions.getDiagramGroupVisibility(info).isShown()) {
@@ -129,26 +156,108 @@ public class DiagramGroup implements ICraftingHandler, IUsageHandler {
 
         switch (id) {
             case "item":
+                if (stacks.length != 1) {
+                    return matchAny(recipeType, toItemComponents(stacks), excludeEmptyDiagrams);
+                }
+
                 ItemStack itemStack = (ItemStack) stacks[0];
-                ItemComponent itemComponent =
-                        info.ignoreNbt()
-                                ? ItemComponent.create(itemStack)
-                                : ItemComponent.createWithNbt(itemStack);
+                if (!matcher.mayMatchItem(Item.getIdFromItem(itemStack.getItem()))) {
+                    return ImmutableList.of();
+                }
+                ItemComponent itemComponent = LookupComponents.item(itemStack, info.ignoreNbt());
 
-                return matcher.match(recipeType, itemComponent);
+                return match(recipeType, itemComponent, excludeEmptyDiagrams);
 
             case "liquid":
             case "fluid":
+                if (stacks.length != 1) {
+                    return matchAny(recipeType, toFluidComponents(stacks), excludeEmptyDiagrams);
+                }
+
                 FluidStack fluidStack = (FluidStack) stacks[0];
+                if (!matcher.mayMatchFluid(fluidStack.getFluid().getID())) {
+                    return ImmutableList.of();
+                }
                 FluidComponent fluidComponent =
+                        LookupComponents.fluid(fluidStack, info.ignoreNbt());
+
+                return match(recipeType, fluidComponent, excludeEmptyDiagrams);
+        }
+
+        return ImmutableList.of();
+    }
+
+    /**
+     * Goes through the {@link GlobalComponentIndex}, so that diagram groups share a single lookup
+     * for each NEI query.
+     */
+    private Collection<Diagram> match(
+            Interactable.RecipeType recipeType, Component component,
+            boolean excludeEmptyDiagrams) {
+        return excludeEmptyDiagrams
+                ? GlobalComponentIndex.INSTANCE.matchNonEmpty(
+                        matcher, recipeType, component, info.emptyDiagramPredicate())
+                : GlobalComponentIndex.INSTANCE.match(matcher, recipeType, component);
+    }
+
+    private Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Set<Component> components,
+            boolean excludeEmptyDiagrams) {
+        if (components.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        return excludeEmptyDiagrams
+                ? matcher.matchAnyNonEmpty(recipeType, components, info.emptyDiagramPredicate())
+                : matcher.matchAny(recipeType, components);
+    }
+
+    /** Skips stacks that the matcher cannot match, and removes duplicates. */
+    private Set<Component> toItemComponents(Object[] stacks) {
+        Set<Component> components = new LinkedHashSet<>();
+        for (Object stack : stacks) {
+            ItemStack itemStack = (ItemStack) stack;
+            if (matcher.mayMatchItem(Item.getIdFromItem(itemStack.getItem()))) {
+                components.add(
+                        info.ignoreNbt()
+                                ? ItemComponent.create(itemStack)
+                                : ItemComponent.createWithNbt(itemStack));
+            }
+        }
+        return components;
+    }
+
+    /** Skips stacks that the matcher cannot match, and removes duplicates. */
+    private Set<Component> toFluidComponents(Object[] stacks) {
+        Set<Component> components = new LinkedHashSet<>();
+        for (Object stack : stacks) {
+            FluidStack fluidStack = (FluidStack) stack;
+            if (matcher.mayMatchFluid(fluidStack.getFluid().getID())) {
+                components.add(
                         info.ignoreNbt()
                                 ? FluidComponent.create(fluidStack)
-                                : FluidComponent.createWithNbt(fluidStack);
+                                : FluidComponent.createWithNbt(fluidStack));
+            }
+        }
+        return components;
+    }
 
-                return matcher.match(recipeType, fluidComponent);
+    protected boolean excludeEmptyDiagrams() {
+        return info.hasEmptyDiagramPredicate() && !ConfigOptions.SHOW_EMPTY_DIAGRAMS.get();
+    }
+
+    /**
+     * Filters out empty diagrams from {@code diagrams}, if {@link #excludeEmptyDiagrams()} returns
+     * {@code true}. Only needed for diagrams that do not come from the matcher.
+     */
+    protected Collection<Diagram> filterEmptyDiagrams(Collection<Diagram> diagrams) {
+        if (!excludeEmptyDiagrams()) {
+            return diagrams;
         }
 
-        return ImmutableList.of();
+        return diagrams.stream()
+                .filter(diagram -> !info.emptyDiagramPredicate().test(diagram))
+                .collect(Collectors.toList());
     }
 
     @Override
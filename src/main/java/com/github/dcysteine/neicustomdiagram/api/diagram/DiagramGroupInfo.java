@@ -10,6 +10,9 @@ import java.util.function.Predicate;
 
 @AutoValue
 public abstract class DiagramGroupInfo {
+    /** Default empty diagram predicate, which treats no diagram as empty. */
+    public static final Predicate<Diagram> NO_EMPTY_DIAGRAMS = diagram -> false;
+
     /** Display description for this diagram group. */
     public abstract String groupName();
 
@@ -41,6 +44,11 @@ public abstract class DiagramGroupInfo {
      */
     public abstract Predicate<Diagram> emptyDiagramPredicate();
 
+    /** Returns {@code false} if this diagram group uses the default empty diagram predicate. */
+    public boolean hasEmptyDiagramPredicate() {
+        return emptyDiagramPredicate() != NO_EMPTY_DIAGRAMS;
+    }
+
     /**
      * Determines when the diagram group is shown.
      *
@@ -71,7 +79,7 @@ public abstract class DiagramGroupInfo {
                     .setIcon(icon)
                     .setDiagramsPerPage(diagramsPerPage)
                     .setIgnoreNbt(true)
-                    .setEmptyDiagramPredicate(diagram -> false)
+                    .setEmptyDiagramPredicate(NO_EMPTY_DIAGRAMS)
                     .setDefaultVisibility(DiagramGroupVisibility.ALWAYS_SHOWN)
                     .setDescription("");
     }
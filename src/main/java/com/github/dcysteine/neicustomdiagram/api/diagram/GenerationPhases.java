@@ -0,0 +1,106 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram;
+
+import com.github.dcysteine.neicustomdiagram.main.GenerationBudget;
+import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helper class for running the independent initialization phases of a diagram generator.
+ *
+ * <p>Each phase declares the phases that it depends on. If
+ * {@link ConfigOptions#PARALLEL_GENERATION} is enabled, phases that do not depend on each other
+ * run concurrently, so that {@link DiagramGenerator#generate()} takes as long as its critical path
+ * rather than the sum of all of its phases. Otherwise, phases run one after another, in the order
+ * in which they were added.
+ *
+ * <p>Phases that do not depend on each other must therefore not share any mutable state.
+ */
+public final class GenerationPhases {
+    private final ImmutableMap<String, Runnable> actions;
+    private final ImmutableMap<String, ImmutableList<String>> dependencies;
+
+    private GenerationPhases(
+            ImmutableMap<String, Runnable> actions,
+            ImmutableMap<String, ImmutableList<String>> dependencies) {
+        this.actions = actions;
+        this.dependencies = dependencies;
+    }
+
+    /** Runs all phases, and returns once they have all finished. */
+    public void run() {
+        if (!ConfigOptions.PARALLEL_GENERATION.get()) {
+            actions.values().forEach(Runnable::run);
+            return;
+        }
+
+        // Phases can only depend on phases added before them, so iteration order is topological.
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        for (Map.Entry<String, Runnable> entry : actions.entrySet()) {
+            CompletableFuture<?>[] dependencyFutures =
+                    dependencies.get(entry.getKey()).stream()
+                            .map(futures::get)
+                            .toArray(CompletableFuture<?>[]::new);
+            futures.put(
+                    entry.getKey(),
+                    CompletableFuture.allOf(dependencyFutures)
+                            .thenRunAsync(GenerationBudget.inheritBudget(entry.getValue())));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            // Rethrow the original exception, so that e.g. cancellation is handled correctly.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private final Map<String, Runnable> actions;
+        private final Map<String, ImmutableList<String>> dependencies;
+
+        public Builder() {
+            this.actions = new LinkedHashMap<>();
+            this.dependencies = new LinkedHashMap<>();
+        }
+
+        /**
+         * Adds a phase. All dependencies must have already been added.
+         *
+         * @param name a name for the phase, unique within this builder.
+         * @param action the action to run for the phase.
+         * @param dependencies the names of the phases that must finish before this one starts.
+         */
+        public Builder addPhase(String name, Runnable action, String... dependencies) {
+            Preconditions.checkArgument(!actions.containsKey(name), "Duplicate phase: %s", name);
+            for (String dependency : dependencies) {
+                Preconditions.checkArgument(
+                        actions.containsKey(dependency),
+                        "Phase %s depends on unknown phase: %s", name, dependency);
+            }
+
+            this.actions.put(name, action);
+            this.dependencies.put(name, ImmutableList.copyOf(dependencies));
+            return this;
+        }
+
+        public GenerationPhases build() {
+            return new GenerationPhases(
+                    ImmutableMap.copyOf(actions), ImmutableMap.copyOf(dependencies));
+        }
+    }
+}
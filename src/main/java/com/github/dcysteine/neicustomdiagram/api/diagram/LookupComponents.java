@@ -0,0 +1,71 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.FluidComponent;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidStack;
+
+/**
+ * Creates the components that diagram groups look up, sharing them across diagram groups.
+ *
+ * <p>NEI passes the same stack to every diagram group for a single query, so the component created
+ * for the previous stack is remembered for each thread, and reused if the stack is unchanged. This
+ * saves allocating one component per diagram group.
+ *
+ * <p>Components with NBT are not shared, as checking whether NBT has changed would cost about as
+ * much as creating a new component.
+ */
+final class LookupComponents {
+    private static final class LastItem {
+        private ItemStack stack;
+        private Item item;
+        private int damage;
+        private ItemComponent component;
+    }
+
+    private static final class LastFluid {
+        private FluidStack stack;
+        private Fluid fluid;
+        private FluidComponent component;
+    }
+
+    private static final ThreadLocal<LastItem> lastItem = ThreadLocal.withInitial(LastItem::new);
+    private static final ThreadLocal<LastFluid> lastFluid =
+            ThreadLocal.withInitial(LastFluid::new);
+
+    // Static class.
+    private LookupComponents() {}
+
+    static ItemComponent item(ItemStack itemStack, boolean ignoreNbt) {
+        if (!ignoreNbt) {
+            return ItemComponent.createWithNbt(itemStack);
+        }
+
+        LastItem last = lastItem.get();
+        if (last.stack != itemStack
+                || last.item != itemStack.getItem()
+                || last.damage != itemStack.getItemDamage()) {
+            last.stack = itemStack;
+            last.item = itemStack.getItem();
+            last.damage = itemStack.getItemDamage();
+            last.component = ItemComponent.create(itemStack);
+        }
+        return last.component;
+    }
+
+    static FluidComponent fluid(FluidStack fluidStack, boolean ignoreNbt) {
+        if (!ignoreNbt) {
+            return FluidComponent.createWithNbt(fluidStack);
+        }
+
+        LastFluid last = lastFluid.get();
+        if (last.stack != fluidStack || last.fluid != fluidStack.getFluid()) {
+            last.stack = fluidStack;
+            last.fluid = fluidStack.getFluid();
+            last.component = FluidComponent.create(fluidStack);
+        }
+        return last.component;
+    }
+}
@@ -1,9 +1,11 @@
 package com.github.dcysteine.neicustomdiagram.api.diagram.component;
 
 import com.google.auto.value.AutoValue;
+import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 
 import java.util.Comparator;
+import java.util.Set;
 
 /** Class wrapping the mutable {@link NBTTagCompound} to make it immutable. */
 @AutoValue
@@ -23,6 +25,34 @@ public abstract class ImmutableNbtWrapper implements Comparable<ImmutableNbtWrap
         return (NBTTagCompound) nbt().copy();
     }
 
+    /**
+     * Returns whether every tag in this NBT is also present in {@code other}, with an equal value.
+     * Nested compound tags are compared in the same way, so they may also be partial.
+     */
+    public boolean isSubsetOf(ImmutableNbtWrapper other) {
+        return isSubset(nbt(), other.nbt());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean isSubset(NBTTagCompound subset, NBTTagCompound superset) {
+        for (String key : (Set<String>) subset.func_150296_c()) {
+            NBTBase tag = subset.getTag(key);
+            NBTBase otherTag = superset.getTag(key);
+            if (otherTag == null) {
+                return false;
+            }
+
+            if (tag instanceof NBTTagCompound && otherTag instanceof NBTTagCompound) {
+                if (!isSubset((NBTTagCompound) tag, (NBTTagCompound) otherTag)) {
+                    return false;
+                }
+            } else if (!tag.equals(otherTag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public int compareTo(ImmutableNbtWrapper other) {
         if (other == null) {
@@ -0,0 +1,205 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Text;
+import com.github.dcysteine.neicustomdiagram.main.Lang;
+import com.github.dcysteine.neicustomdiagram.main.NeiCustomDiagram;
+import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Implementation of {@link DiagramMatcher} that runs another matcher's lookups on a worker thread,
+ * and waits for at most {@link ConfigOptions#ASYNC_LOOKUP_DEADLINE_MS} for them to finish.
+ *
+ * <p>If a lookup misses the deadline, a placeholder diagram is returned instead, and the lookup
+ * keeps running. Its result is held for a short while, so that reopening the page shows it
+ * immediately. This keeps slow dynamic diagram groups from freezing the NEI GUI.
+ *
+ * <p>The wrapped matcher's lookups must be thread-safe. In particular, they must not read
+ * client-thread-only state, such as NEI's item list, the font renderer, or live Ender Storage data.
+ */
+public class AsyncDiagramMatcher implements DiagramMatcher {
+    private static final int WORKER_THREAD_COUNT = 2;
+    private static final int MAX_PENDING_LOOKUPS = 64;
+    private static final long PENDING_LOOKUP_EXPIRY_SECONDS = 60;
+
+    private static ExecutorService executor;
+
+    protected final DiagramMatcher delegate;
+    protected final long deadlineMillis;
+    protected final Diagram placeholderDiagram;
+
+    /** Lookups that are still running, or that finished after their deadline. */
+    private final Cache<LookupKey, CompletableFuture<ImmutableList<Diagram>>> pendingLookups;
+
+    public AsyncDiagramMatcher(DiagramMatcher delegate, long deadlineMillis) {
+        this.delegate = delegate;
+        this.deadlineMillis = deadlineMillis;
+        this.placeholderDiagram = buildPlaceholderDiagram();
+        this.pendingLookups =
+                CacheBuilder.newBuilder()
+                        .maximumSize(MAX_PENDING_LOOKUPS)
+                        .expireAfterWrite(PENDING_LOOKUP_EXPIRY_SECONDS, TimeUnit.SECONDS)
+                        .build();
+    }
+
+    /**
+     * Returns an {@link AsyncDiagramMatcher} wrapping {@code delegate} if
+     * {@link ConfigOptions#ASYNC_LOOKUP_DEADLINE_MS} is positive, and {@code delegate} otherwise.
+     */
+    public static DiagramMatcher create(DiagramMatcher delegate) {
+        int deadlineMillis = ConfigOptions.ASYNC_LOOKUP_DEADLINE_MS.get();
+        if (deadlineMillis <= 0) {
+            return delegate;
+        }
+        return new AsyncDiagramMatcher(delegate, deadlineMillis);
+    }
+
+    @Override
+    public Collection<Diagram> all() {
+        return delegate.all();
+    }
+
+    @Override
+    public Collection<Diagram> match(Interactable.RecipeType recipeType, Component component) {
+        LookupKey key = LookupKey.create(recipeType, component);
+        CompletableFuture<ImmutableList<Diagram>> lookup = startLookup(key);
+        try {
+            ImmutableList<Diagram> diagrams = lookup.get(deadlineMillis, TimeUnit.MILLISECONDS);
+            // Don't hold on to finished lookups, so that the next lookup gets fresh results.
+            pendingLookups.asMap().remove(key, lookup);
+            return diagrams;
+        } catch (TimeoutException e) {
+            return ImmutableList.of(placeholderDiagram);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ImmutableList.of(placeholderDiagram);
+        } catch (ExecutionException e) {
+            pendingLookups.asMap().remove(key, lookup);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Starts the lookups for all of {@code components} at once, and waits for at most a single
+     * deadline for all of them, rather than one deadline per component.
+     */
+    @Override
+    public Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components) {
+        Map<LookupKey, CompletableFuture<ImmutableList<Diagram>>> lookups = new LinkedHashMap<>();
+        for (Component component : components) {
+            LookupKey key = LookupKey.create(recipeType, component);
+            lookups.put(key, startLookup(key));
+        }
+
+        try {
+            CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture<?>[0]))
+                    .get(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return ImmutableList.of(placeholderDiagram);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ImmutableList.of(placeholderDiagram);
+        } catch (ExecutionException e) {
+            lookups.forEach(pendingLookups.asMap()::remove);
+            throw Throwables.propagate(e.getCause());
+        }
+
+        Set<Diagram> diagrams = new LinkedHashSet<>();
+        lookups.forEach(
+                (key, lookup) -> {
+                    pendingLookups.asMap().remove(key, lookup);
+                    diagrams.addAll(lookup.join());
+                });
+        return diagrams;
+    }
+
+    @Override
+    public boolean mayMatchItem(int itemId) {
+        return delegate.mayMatchItem(itemId);
+    }
+
+    @Override
+    public boolean mayMatchFluid(int fluidId) {
+        return delegate.mayMatchFluid(fluidId);
+    }
+
+    @Override
+    public void precomputeEmptiness(Predicate<Diagram> emptyDiagramPredicate) {
+        delegate.precomputeEmptiness(emptyDiagramPredicate);
+    }
+
+    @Override
+    public Collection<Diagram> allNonEmpty(Predicate<Diagram> emptyDiagramPredicate) {
+        return delegate.allNonEmpty(emptyDiagramPredicate);
+    }
+
+    /** Returns the pending lookup for {@code key}, starting it if there isn't one. */
+    private CompletableFuture<ImmutableList<Diagram>> startLookup(LookupKey key) {
+        try {
+            return pendingLookups.get(
+                    key,
+                    () -> CompletableFuture.supplyAsync(
+                            () -> ImmutableList.copyOf(
+                                    delegate.match(key.recipeType(), key.component())),
+                            getExecutor()));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor =
+                    Executors.newFixedThreadPool(
+                            WORKER_THREAD_COUNT,
+                            runnable -> {
+                                Thread thread = new Thread(
+                                        runnable, NeiCustomDiagram.MOD_NAME + " lookup");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        }
+        return executor;
+    }
+
+    private static Diagram buildPlaceholderDiagram() {
+        return Diagram.builder()
+                .addLayout(
+                        Layout.builder()
+                                .addLabel(
+                                        Text.builder(
+                                                        Lang.API.trans("stillsearching"),
+                                                        Grid.GRID.grid(6, 2), Grid.Direction.C)
+                                                .build())
+                                .addLabel(
+                                        Text.builder(
+                                                        Lang.API.trans("reopentosee"),
+                                                        Grid.GRID.grid(6, 4), Grid.Direction.C)
+                                                .setSmall(true)
+                                                .build())
+                                .build())
+                .build();
+    }
+}
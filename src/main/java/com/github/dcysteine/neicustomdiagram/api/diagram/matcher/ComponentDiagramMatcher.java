@@ -3,44 +3,200 @@ package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.EnumMap;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Implementation of {@link DiagramMatcher} that looks up diagrams by their components.
  *
- * <p>This implementation has fast lookup regardless of the number of diagrams, but is
- * memory-intensive. NBT is ignored by default. This implementation is a good choice if:
+ * <p>This implementation has fast lookup regardless of the number of diagrams. When built, lookup
+ * data is frozen into a compressed sparse row index, which costs one {@code int} per
+ * (component, diagram) pair, shared between crafting and usage lookups. NBT is ignored by
+ * default. This implementation is a good choice if:
  * <ul>
  *     <li>There is a large number of diagrams.
  *     <li>Diagrams match a small number of components.
  * </ul>
+ *
+ * <p>See also {@link PackedComponentDiagramMatcher}, which is more compact.
  */
 public class ComponentDiagramMatcher implements DiagramMatcher {
-    protected final ImmutableMap<
-            Interactable.RecipeType, ImmutableSetMultimap<Component, Diagram>> matchData;
+    /**
+     * Dense, deduplicated list of diagrams, in the order that they were first added; the index of
+     * each diagram is its diagram ID. Also returned as-is by {@link #all()}.
+     */
+    private final ImmutableList<Diagram> diagrams;
+
+    /** Shared by all recipe types; each entry records which recipe types it matches. */
+    private final ComponentIndex matchData;
+    private final ComponentIdFilter idFilter;
+    private final int keyCount;
+
+    /** Set once, when this matcher's diagram group is constructed. */
+    private volatile EmptyDiagrams emptyDiagrams;
 
+    /**
+     * The multimaps are only used during construction; they are compacted into a single
+     * {@link ComponentIndex}, which stores each (component, diagram) pair once.
+     */
     public ComponentDiagramMatcher(
             ImmutableMap<
                     Interactable.RecipeType, ImmutableSetMultimap<Component, Diagram>> matchData) {
-        this.matchData = matchData;
+        this(toMatchEntries(matchData));
+    }
+
+    ComponentDiagramMatcher(MatchEntries matchEntries) {
+        this.diagrams = matchEntries.diagrams();
+        this.matchData = new ComponentIndex(matchEntries.entries());
+        this.idFilter = new ComponentIdFilter(matchEntries.entries().keySet());
+        this.keyCount = matchEntries.entries().size();
+    }
+
+    private static MatchEntries toMatchEntries(
+            Map<Interactable.RecipeType, ImmutableSetMultimap<Component, Diagram>> matchData) {
+        MatchEntries matchEntries = new MatchEntries();
+        matchData.forEach(
+                (recipeType, multimap) -> {
+                    int role = MatchEntries.role(recipeType);
+                    multimap.forEach(
+                            (component, diagram) -> matchEntries.add(component, diagram, role));
+                });
+        return matchEntries;
     }
 
+    /** Diagrams are returned in the order that they were first added. */
     @Override
     public Collection<Diagram> all() {
-        return matchData.values().stream()
-                .map(ImmutableSetMultimap::values)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toSet());
+        return diagrams;
     }
 
     @Override
     public Collection<Diagram> match(Interactable.RecipeType recipeType, Component component) {
-        return matchData.get(recipeType).get(component);
+        return match(recipeType, component, MatchEntries.NO_DIAGRAM_IDS);
+    }
+
+    @Override
+    public void precomputeEmptiness(Predicate<Diagram> emptyDiagramPredicate) {
+        emptyDiagrams = new EmptyDiagrams(diagrams, emptyDiagramPredicate);
+    }
+
+    @Override
+    public Collection<Diagram> allNonEmpty(Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.allNonEmpty(emptyDiagramPredicate);
+        }
+        return currentEmptyDiagrams.nonEmptyDiagrams();
+    }
+
+    @Override
+    public Collection<Diagram> matchNonEmpty(
+            Interactable.RecipeType recipeType, Component component,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.matchNonEmpty(
+                    recipeType, component, emptyDiagramPredicate);
+        }
+        return match(recipeType, component, currentEmptyDiagrams.emptyDiagramIds());
+    }
+
+    /**
+     * Merges the results for each component into a single set of diagram IDs, so diagrams are
+     * returned in the order that they were first added.
+     */
+    @Override
+    public Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components) {
+        return matchAny(recipeType, components, MatchEntries.NO_DIAGRAM_IDS);
+    }
+
+    @Override
+    public Collection<Diagram> matchAnyNonEmpty(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.matchAnyNonEmpty(
+                    recipeType, components, emptyDiagramPredicate);
+        }
+        return matchAny(recipeType, components, currentEmptyDiagrams.emptyDiagramIds());
+    }
+
+    private Collection<Diagram> match(
+            Interactable.RecipeType recipeType, Component component,
+            BitSet excludedDiagramIds) {
+        return matchData.get(
+                matchData.find(component), recipeType, diagrams, excludedDiagramIds);
+    }
+
+    private Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            BitSet excludedDiagramIds) {
+        BitSet diagramIds = new BitSet(diagrams.size());
+        for (Component component : components) {
+            matchData.collect(
+                    matchData.find(component), recipeType, excludedDiagramIds, diagramIds);
+        }
+        return MatchEntries.resolve(diagramIds, diagrams);
+    }
+
+    @Override
+    public boolean mayMatchItem(int itemId) {
+        return idFilter.mayContainItem(itemId);
+    }
+
+    @Override
+    public boolean mayMatchFluid(int fluidId) {
+        return idFilter.mayContainFluid(fluidId);
+    }
+
+    /**
+     * Rebuilds the multimaps that this matcher was constructed from.
+     *
+     * <p>This replaces the {@code matchData} field that older versions exposed to subclasses. The
+     * multimaps are no longer kept after construction, so this method is slow and allocates a copy
+     * of all lookup data on each call; it is intended for debugging and migration only.
+     *
+     * @deprecated rebuilds all lookup data on each call. Use {@link #match} or {@link #all()}
+     *     instead.
+     */
+    @Deprecated
+    public ImmutableMap<Interactable.RecipeType, ImmutableSetMultimap<Component, Diagram>>
+            matchData() {
+        Map<Interactable.RecipeType, ImmutableSetMultimap.Builder<Component, Diagram>> builders =
+                new EnumMap<>(Interactable.RecipeType.class);
+        for (Interactable.RecipeType recipeType : Interactable.RecipeType.values()) {
+            builders.put(recipeType, ImmutableSetMultimap.builder());
+        }
+
+        matchData.forEach(
+                (component, entry) -> {
+                    Diagram diagram = diagrams.get(MatchEntries.diagramId(entry));
+                    builders.forEach(
+                            (recipeType, builder) -> {
+                                if ((entry & MatchEntries.role(recipeType)) != 0) {
+                                    builder.put(component, diagram);
+                                }
+                            });
+                });
+
+        ImmutableMap.Builder<Interactable.RecipeType, ImmutableSetMultimap<Component, Diagram>>
+                result = ImmutableMap.builder();
+        builders.forEach((recipeType, builder) -> result.put(recipeType, builder.build()));
+        return result.build();
+    }
+
+    /** Returns the number of distinct components that this matcher can match. */
+    public int keyCount() {
+        return keyCount;
     }
 
     public static Builder builder() {
@@ -48,15 +204,10 @@ public class ComponentDiagramMatcher implements DiagramMatcher {
     }
 
     public static final class Builder {
-        private final EnumMap<Interactable.RecipeType,
-                ImmutableSetMultimap.Builder<Component, Diagram>> matchDataBuilder;
+        private final MatchEntries matchEntries;
 
         public Builder() {
-            matchDataBuilder = new EnumMap<>(Interactable.RecipeType.class);
-
-            for (Interactable.RecipeType recipeType : Interactable.RecipeType.values()) {
-                matchDataBuilder.put(recipeType, ImmutableSetMultimap.builder());
-            }
+            matchEntries = new MatchEntries();
         }
 
         public DiagramSubBuilder addDiagram(Diagram diagram) {
@@ -64,12 +215,23 @@ public class ComponentDiagramMatcher implements DiagramMatcher {
         }
 
         public ComponentDiagramMatcher build() {
-            ImmutableMap.Builder<
-                    Interactable.RecipeType, ImmutableSetMultimap<Component, Diagram>> builder =
-                            ImmutableMap.builder();
-            matchDataBuilder.forEach((key, value) -> builder.put(key, value.build()));
+            return new ComponentDiagramMatcher(matchEntries);
+        }
+
+        /**
+         * Builds a {@link PackedComponentDiagramMatcher} instead, which is cheaper to query and
+         * uses less memory.
+         */
+        public PackedComponentDiagramMatcher buildPacked() {
+            return PackedComponentDiagramMatcher.create(matchEntries);
+        }
 
-            return new ComponentDiagramMatcher(builder.build());
+        /**
+         * Builds a {@link WildcardComponentDiagramMatcher} instead, which treats wildcard-damage
+         * item components and components with NBT as patterns.
+         */
+        public WildcardComponentDiagramMatcher buildWildcard() {
+            return new WildcardComponentDiagramMatcher(matchEntries);
         }
 
         public final class DiagramSubBuilder {
@@ -84,9 +246,7 @@ public class ComponentDiagramMatcher implements DiagramMatcher {
              * {@code component}.
              */
             public DiagramSubBuilder addComponent(Component component) {
-                for (Interactable.RecipeType recipeType : Interactable.RecipeType.values()) {
-                    this.addComponent(recipeType, component);
-                }
+                matchEntries.add(component, diagram, MatchEntries.allRoles());
                 return this;
             }
 
@@ -95,9 +255,8 @@ public class ComponentDiagramMatcher implements DiagramMatcher {
              * {@code components}.
              */
             public DiagramSubBuilder addAllComponents(Iterable<? extends Component> components) {
-                for (Interactable.RecipeType recipeType : Interactable.RecipeType.values()) {
-                    this.addAllComponents(recipeType, components);
-                }
+                int roles = MatchEntries.allRoles();
+                components.forEach(c -> matchEntries.add(c, diagram, roles));
                 return this;
             }
 
@@ -107,7 +266,7 @@ public class ComponentDiagramMatcher implements DiagramMatcher {
              */
             public DiagramSubBuilder addComponent(
                     Interactable.RecipeType recipeType, Component component) {
-                matchDataBuilder.get(recipeType).put(component, diagram);
+                matchEntries.add(component, diagram, MatchEntries.role(recipeType));
                 return this;
             }
 
@@ -117,11 +276,10 @@ public class ComponentDiagramMatcher implements DiagramMatcher {
              */
             public DiagramSubBuilder addAllComponents(
                     Interactable.RecipeType recipeType, Iterable<? extends Component> components) {
-                ImmutableSetMultimap.Builder<Component, Diagram> builder =
-                        matchDataBuilder.get(recipeType);
-                components.forEach(c -> builder.put(c, diagram));
+                int role = MatchEntries.role(recipeType);
+                components.forEach(c -> matchEntries.add(c, diagram, role));
                 return this;
             }
         }
     }
-}
\ No newline at end of file
+}
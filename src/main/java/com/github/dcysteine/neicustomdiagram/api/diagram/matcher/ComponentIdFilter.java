@@ -0,0 +1,44 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.FluidComponent;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+
+import java.util.BitSet;
+
+/**
+ * Immutable bitset over the item IDs and fluid IDs of a set of components.
+ *
+ * <p>Used to reject lookups for items and fluids that cannot possibly match, without constructing
+ * a component or touching the lookup index. Item IDs are bounded by the item registry, so this
+ * costs a few KiB per diagram group at most.
+ */
+final class ComponentIdFilter {
+    private final BitSet itemIds;
+    private final BitSet fluidIds;
+
+    ComponentIdFilter(Iterable<? extends Component> components) {
+        this.itemIds = new BitSet();
+        this.fluidIds = new BitSet();
+
+        for (Component component : components) {
+            switch (component.type()) {
+                case ITEM:
+                    itemIds.set(((ItemComponent) component).itemId());
+                    break;
+
+                case FLUID:
+                    fluidIds.set(((FluidComponent) component).fluidId());
+                    break;
+            }
+        }
+    }
+
+    boolean mayContainItem(int itemId) {
+        return itemId >= 0 && itemIds.get(itemId);
+    }
+
+    boolean mayContainFluid(int fluidId) {
+        return fluidId >= 0 && fluidIds.get(fluidId);
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Frozen compressed sparse row (CSR) index from components to packed {@link MatchEntries}.
+ *
+ * <p>Keys are stored in an array, in the iteration order of the map that the index was built
+ * from. The entries for the key at row {@code i} are stored in {@code packedEntries[offsets[i]]}
+ * up to (but excluding) {@code packedEntries[offsets[i + 1]]}.
+ * Lookups go through an open-addressing hash table of row indices, so each entry costs a single
+ * {@code int}, rather than a full multimap entry object.
+ */
+final class ComponentIndex {
+    private static final int EMPTY_SLOT = -1;
+
+    private final Component[] keys;
+    private final int[] offsets;
+    private final int[] packedEntries;
+
+    /** Open-addressing hash table of row indices, using linear probing. */
+    private final int[] slots;
+    private final int mask;
+    private final int shift;
+
+    /** {@code entries} maps each key to its packed entries. */
+    ComponentIndex(Map<Component, ? extends Collection<Integer>> entries) {
+        this.keys = entries.keySet().toArray(new Component[0]);
+
+        this.offsets = new int[keys.length + 1];
+        for (int row = 0; row < keys.length; row++) {
+            offsets[row + 1] = offsets[row] + entries.get(keys[row]).size();
+        }
+
+        this.packedEntries = new int[offsets[keys.length]];
+        for (int row = 0; row < keys.length; row++) {
+            int i = offsets[row];
+            for (int entry : entries.get(keys[row])) {
+                packedEntries[i++] = entry;
+            }
+        }
+
+        // Keep the load factor at or below 0.5, so that probe sequences stay short.
+        int capacity = Integer.highestOneBit(Math.max(2, keys.length * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfLeadingZeros(mask);
+        Arrays.fill(slots, EMPTY_SLOT);
+        for (int row = 0; row < keys.length; row++) {
+            int slot = slot(keys[row]);
+            while (slots[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row;
+        }
+    }
+
+    /** Returns the row for {@code key}, or -1 if it is not in this index. */
+    int find(Component key) {
+        int slot = slot(key);
+        while (true) {
+            int row = slots[slot];
+            if (row == EMPTY_SLOT) {
+                return -1;
+            } else if (keys[row].equals(key)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Calls {@code consumer} on each key and each of its packed entries, in row order. */
+    void forEach(ObjIntConsumer<Component> consumer) {
+        for (int row = 0; row < keys.length; row++) {
+            for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+                consumer.accept(keys[row], packedEntries[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets the IDs of the diagrams at {@code row} that match {@code recipeType} in
+     * {@code diagramIds}, excluding any in {@code excludedDiagramIds}. Does nothing if {@code row}
+     * is negative.
+     */
+    void collect(
+            int row, Interactable.RecipeType recipeType, BitSet excludedDiagramIds,
+            BitSet diagramIds) {
+        if (row < 0) {
+            return;
+        }
+        MatchEntries.collect(
+                packedEntries, offsets[row], offsets[row + 1], recipeType, excludedDiagramIds,
+                diagramIds);
+    }
+
+    /**
+     * Returns the diagrams for {@code key} that match {@code recipeType}, excluding any in
+     * {@code excludedDiagramIds}.
+     */
+    List<Diagram> get(
+            Component key, Interactable.RecipeType recipeType, List<Diagram> diagrams,
+            BitSet excludedDiagramIds) {
+        return get(find(key), recipeType, diagrams, excludedDiagramIds);
+    }
+
+    /**
+     * Returns the diagrams at {@code row} that match {@code recipeType}, excluding any in
+     * {@code excludedDiagramIds}, or an empty list if {@code row} is negative.
+     */
+    List<Diagram> get(
+            int row, Interactable.RecipeType recipeType, List<Diagram> diagrams,
+            BitSet excludedDiagramIds) {
+        if (row < 0) {
+            return ImmutableList.of();
+        }
+        return MatchEntries.resolve(
+                packedEntries, offsets[row], offsets[row + 1], recipeType, diagrams,
+                excludedDiagramIds);
+    }
+
+    private int slot(Component key) {
+        // Fibonacci hashing, as AutoValue hash codes are not well-distributed in the low bits.
+        return (key.hashCode() * 0x9E3779B9) >>> shift;
+    }
+}
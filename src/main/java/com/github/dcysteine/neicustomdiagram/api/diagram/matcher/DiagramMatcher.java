@@ -5,9 +5,85 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
 
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
-/** This interface contains the logic for figuring out which diagrams match an item or fluid. */
+/**
+ * This interface contains the logic for figuring out which diagrams match an item or fluid.
+ *
+ * <p>Lookups may be made concurrently, from NEI worker threads, so implementations must be safe to
+ * query from several threads at once after construction.
+ */
 public interface DiagramMatcher {
     Collection<Diagram> all();
     Collection<Diagram> match(Interactable.RecipeType recipeType, Component component);
+
+    /**
+     * Called once, when a diagram group is constructed with this matcher, so that implementations
+     * can evaluate {@code emptyDiagramPredicate} once per diagram up-front, rather than on every
+     * lookup.
+     */
+    default void precomputeEmptiness(Predicate<Diagram> emptyDiagramPredicate) {}
+
+    /** Like {@link #all()}, but excludes diagrams that {@code emptyDiagramPredicate} accepts. */
+    default Collection<Diagram> allNonEmpty(Predicate<Diagram> emptyDiagramPredicate) {
+        return all().stream()
+                .filter(emptyDiagramPredicate.negate())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Like {@link #match(Interactable.RecipeType, Component)}, but excludes diagrams that
+     * {@code emptyDiagramPredicate} accepts.
+     */
+    default Collection<Diagram> matchNonEmpty(
+            Interactable.RecipeType recipeType, Component component,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        return match(recipeType, component).stream()
+                .filter(emptyDiagramPredicate.negate())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the diagrams that match any of {@code components}, each at most once. Used to look
+     * up several stacks at once, such as all items in an ore dictionary entry.
+     */
+    default Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components) {
+        Set<Diagram> diagrams = new LinkedHashSet<>();
+        components.forEach(component -> diagrams.addAll(match(recipeType, component)));
+        return diagrams;
+    }
+
+    /**
+     * Like {@link #matchAny(Interactable.RecipeType, Collection)}, but excludes diagrams that
+     * {@code emptyDiagramPredicate} accepts.
+     */
+    default Collection<Diagram> matchAnyNonEmpty(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        return matchAny(recipeType, components).stream()
+                .filter(emptyDiagramPredicate.negate())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns {@code false} if no item with ID {@code itemId} can match any diagram, so that the
+     * lookup can be skipped before constructing a component. May return {@code true} even if
+     * nothing matches.
+     */
+    default boolean mayMatchItem(int itemId) {
+        return true;
+    }
+
+    /**
+     * Returns {@code false} if no fluid with ID {@code fluidId} can match any diagram, so that the
+     * lookup can be skipped before constructing a component. May return {@code true} even if
+     * nothing matches.
+     */
+    default boolean mayMatchFluid(int fluidId) {
+        return true;
+    }
 }
@@ -0,0 +1,50 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.google.common.collect.ImmutableList;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Immutable record of which diagrams in a dense list of diagrams are empty, according to a
+ * specific empty diagram predicate.
+ *
+ * <p>The predicate is evaluated exactly once per diagram, on construction.
+ */
+final class EmptyDiagrams {
+    private final Predicate<Diagram> emptyDiagramPredicate;
+    private final BitSet emptyDiagramIds;
+    private final ImmutableList<Diagram> nonEmptyDiagrams;
+
+    EmptyDiagrams(List<Diagram> diagrams, Predicate<Diagram> emptyDiagramPredicate) {
+        this.emptyDiagramPredicate = emptyDiagramPredicate;
+        this.emptyDiagramIds = new BitSet(diagrams.size());
+
+        ImmutableList.Builder<Diagram> nonEmptyDiagramsBuilder = ImmutableList.builder();
+        for (int i = 0; i < diagrams.size(); i++) {
+            Diagram diagram = diagrams.get(i);
+            if (emptyDiagramPredicate.test(diagram)) {
+                emptyDiagramIds.set(i);
+            } else {
+                nonEmptyDiagramsBuilder.add(diagram);
+            }
+        }
+        this.nonEmptyDiagrams = nonEmptyDiagramsBuilder.build();
+    }
+
+    /** Returns whether this was computed with {@code emptyDiagramPredicate}. */
+    boolean isFor(Predicate<Diagram> emptyDiagramPredicate) {
+        return this.emptyDiagramPredicate == emptyDiagramPredicate;
+    }
+
+    /** Do not modify the result. */
+    BitSet emptyDiagramIds() {
+        return emptyDiagramIds;
+    }
+
+    ImmutableList<Diagram> nonEmptyDiagrams() {
+        return nonEmptyDiagrams;
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Singleton index from packed component keys to the packed entries of every
+ * {@link PackedComponentDiagramMatcher} that contains them, shared across all static diagram
+ * groups.
+ *
+ * <p>NEI asks every diagram group about the same stack for each query. Through this index, that
+ * costs a single hash lookup in total, rather than one per diagram group: the first diagram group
+ * to ask does the lookup, which is remembered, and each following diagram group just picks its own
+ * packed entries out of the result. The packed entries are the same arrays that each matcher
+ * holds, so they are not copied.
+ *
+ * <p>Other matcher types, and components that cannot be packed (such as those with NBT), are not
+ * indexed; lookups for those fall back to the diagram group's own matcher.
+ *
+ * <p>Each rebuild creates a new immutable snapshot, and points each indexed matcher at it, so
+ * lookups are safe from any thread.
+ */
+public enum GlobalComponentIndex {
+    // Singleton class; enforced by being an enum.
+    INSTANCE;
+
+    /** Every indexed matcher that contains one key, together with its packed entries for it. */
+    private static final class Row {
+        private static final Row EMPTY = new Row(new PackedComponentDiagramMatcher[0], new int[0][]);
+
+        private final PackedComponentDiagramMatcher[] matchers;
+        private final int[][] packedEntries;
+
+        private Row(PackedComponentDiagramMatcher[] matchers, int[][] packedEntries) {
+            this.matchers = matchers;
+            this.packedEntries = packedEntries;
+        }
+
+        private static Row of(PackedComponentDiagramMatcher matcher, int[] packedEntries) {
+            return new Row(
+                    new PackedComponentDiagramMatcher[] {matcher}, new int[][] {packedEntries});
+        }
+
+        private static Row concat(Row first, Row second) {
+            PackedComponentDiagramMatcher[] matchers =
+                    Arrays.copyOf(first.matchers, first.matchers.length + second.matchers.length);
+            System.arraycopy(
+                    second.matchers, 0, matchers, first.matchers.length, second.matchers.length);
+
+            int[][] packedEntries = Arrays.copyOf(
+                    first.packedEntries, first.packedEntries.length + second.packedEntries.length);
+            System.arraycopy(
+                    second.packedEntries, 0, packedEntries, first.packedEntries.length,
+                    second.packedEntries.length);
+
+            return new Row(matchers, packedEntries);
+        }
+
+        /** Returns the packed entries for {@code matcher}, or an empty array. */
+        private int[] packedEntries(PackedComponentDiagramMatcher matcher) {
+            for (int i = 0; i < matchers.length; i++) {
+                if (matchers[i] == matcher) {
+                    return packedEntries[i];
+                }
+            }
+            return MatchEntries.NO_ENTRIES;
+        }
+    }
+
+    static final class Snapshot {
+        private final PackedKeyIndex<Row> rows;
+
+        private Snapshot(PackedKeyIndex<Row> rows) {
+            this.rows = rows;
+        }
+    }
+
+    /** The most recent lookup, which is shared by all threads. */
+    private static final class LastLookup {
+        private final Snapshot snapshot;
+        private final long key;
+        private final Row row;
+
+        private LastLookup(Snapshot snapshot, long key, Row row) {
+            this.snapshot = snapshot;
+            this.key = key;
+            this.row = row;
+        }
+    }
+
+    private volatile LastLookup lastLookup =
+            new LastLookup(null, PackedComponentDiagramMatcher.NO_KEY, Row.EMPTY);
+
+    /**
+     * Rebuilds the index from the {@link PackedComponentDiagramMatcher}s in {@code matchers}; any
+     * other matchers are ignored. Matchers that were in the previous index but are not in
+     * {@code matchers} will keep using the previous index.
+     *
+     * @return the number of matchers indexed.
+     */
+    public synchronized int rebuild(Iterable<? extends DiagramMatcher> matchers) {
+        Map<PackedComponentDiagramMatcher, Boolean> packedMatchers = new IdentityHashMap<>();
+        Map<Long, Row> rows = new HashMap<>();
+        for (DiagramMatcher matcher : matchers) {
+            if (!(matcher instanceof PackedComponentDiagramMatcher)
+                    || packedMatchers.put((PackedComponentDiagramMatcher) matcher, true) != null) {
+                continue;
+            }
+
+            PackedComponentDiagramMatcher packedMatcher = (PackedComponentDiagramMatcher) matcher;
+            packedMatcher.forEachPackedKey(
+                    (packedEntries, key) ->
+                            rows.merge(key, Row.of(packedMatcher, packedEntries), Row::concat));
+        }
+
+        Snapshot snapshot = new Snapshot(new PackedKeyIndex<>(rows));
+        packedMatchers.keySet().forEach(matcher -> matcher.globalIndexSnapshot = snapshot);
+        // Don't hold on to matchers from the previous snapshot.
+        lastLookup = new LastLookup(null, PackedComponentDiagramMatcher.NO_KEY, Row.EMPTY);
+        return packedMatchers.size();
+    }
+
+    /**
+     * Equivalent to {@code matcher.match(recipeType, component)}, but goes through this index if
+     * {@code matcher} and {@code component} are indexed.
+     */
+    public Collection<Diagram> match(
+            DiagramMatcher matcher, Interactable.RecipeType recipeType, Component component) {
+        int[] packedEntries = find(matcher, component);
+        if (packedEntries == null) {
+            return matcher.match(recipeType, component);
+        }
+
+        return ((PackedComponentDiagramMatcher) matcher)
+                .resolve(packedEntries, recipeType, MatchEntries.NO_DIAGRAM_IDS);
+    }
+
+    /**
+     * Equivalent to {@code matcher.matchNonEmpty(recipeType, component, emptyDiagramPredicate)},
+     * but goes through this index if {@code matcher} and {@code component} are indexed.
+     */
+    public Collection<Diagram> matchNonEmpty(
+            DiagramMatcher matcher, Interactable.RecipeType recipeType, Component component,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        int[] packedEntries = find(matcher, component);
+        if (packedEntries == null) {
+            return matcher.matchNonEmpty(recipeType, component, emptyDiagramPredicate);
+        }
+
+        return ((PackedComponentDiagramMatcher) matcher)
+                .resolveNonEmpty(packedEntries, recipeType, emptyDiagramPredicate);
+    }
+
+    /**
+     * Returns {@code matcher}'s packed entries for {@code component}, or {@code null} if either is
+     * not indexed.
+     *
+     * <p>Each matcher is looked up in the snapshot that it was indexed in, so a concurrent rebuild
+     * cannot cause a matcher to be looked up in a snapshot that does not contain it.
+     */
+    private int[] find(DiagramMatcher matcher, Component component) {
+        if (!(matcher instanceof PackedComponentDiagramMatcher)) {
+            return null;
+        }
+        PackedComponentDiagramMatcher packedMatcher = (PackedComponentDiagramMatcher) matcher;
+        Snapshot snapshot = packedMatcher.globalIndexSnapshot;
+        if (snapshot == null) {
+            return null;
+        }
+        long key = PackedComponentDiagramMatcher.packKey(component);
+        if (key == PackedComponentDiagramMatcher.NO_KEY) {
+            return null;
+        }
+
+        LastLookup last = lastLookup;
+        if (last.snapshot != snapshot || last.key != key) {
+            last = new LastLookup(snapshot, key, snapshot.rows.get(key, Row.EMPTY));
+            lastLookup = last;
+        }
+        return last.row.packedEntries(packedMatcher);
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.google.auto.value.AutoValue;
+
+/** Key for caching the result of a single {@link DiagramMatcher#match} call. */
+@AutoValue
+abstract class LookupKey {
+    static LookupKey create(Interactable.RecipeType recipeType, Component component) {
+        return new AutoValue_LookupKey(recipeType, component);
+    }
+
+    abstract Interactable.RecipeType recipeType();
+    abstract Component component();
+}
@@ -0,0 +1,134 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects (component, diagram) entries for the component-keyed matchers, and packs each of them
+ * into a single {@code int}.
+ *
+ * <p>Each packed entry holds a dense diagram ID in its upper bits, and a bitmask of the recipe
+ * types that it matches in its lower bits. So a (component, diagram) pair that matches both
+ * crafting and usage lookups is only stored once, and lookups filter by recipe type.
+ */
+final class MatchEntries {
+    private static final int ROLE_BITS = Interactable.RecipeType.values().length;
+
+    /** Empty set of diagram IDs, for lookups that should not exclude any diagrams. */
+    static final BitSet NO_DIAGRAM_IDS = new BitSet(0);
+
+    /** Empty array of packed entries, for components that match nothing. */
+    static final int[] NO_ENTRIES = new int[0];
+
+    /** Diagrams are deduplicated using {@link Diagram#equals(Object)}. */
+    private final Map<Diagram, Integer> diagramIds;
+    private final List<Diagram> diagrams;
+    private final Map<Component, List<Integer>> entries;
+
+    MatchEntries() {
+        this.diagramIds = new HashMap<>();
+        this.diagrams = new ArrayList<>();
+        this.entries = new LinkedHashMap<>();
+    }
+
+    static int role(Interactable.RecipeType recipeType) {
+        return 1 << recipeType.ordinal();
+    }
+
+    static int allRoles() {
+        return (1 << ROLE_BITS) - 1;
+    }
+
+    static int diagramId(int packedEntry) {
+        return packedEntry >>> ROLE_BITS;
+    }
+
+    /**
+     * For each entry in {@code packedEntries[from]} up to (but excluding) {@code packedEntries[to]}
+     * that matches {@code recipeType}, sets its diagram ID in {@code diagramIds}, skipping any in
+     * {@code excludedDiagramIds}.
+     */
+    static void collect(
+            int[] packedEntries, int from, int to, Interactable.RecipeType recipeType,
+            BitSet excludedDiagramIds, BitSet diagramIds) {
+        int role = role(recipeType);
+        for (int i = from; i < to; i++) {
+            int entry = packedEntries[i];
+            int diagramId = diagramId(entry);
+            if ((entry & role) != 0 && !excludedDiagramIds.get(diagramId)) {
+                diagramIds.set(diagramId);
+            }
+        }
+    }
+
+    /** Returns the diagrams with IDs in {@code diagramIds}, in diagram ID order. */
+    static List<Diagram> resolve(BitSet diagramIds, List<Diagram> diagrams) {
+        List<Diagram> result = new ArrayList<>(diagramIds.cardinality());
+        for (int i = diagramIds.nextSetBit(0); i >= 0; i = diagramIds.nextSetBit(i + 1)) {
+            result.add(diagrams.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the diagrams in {@code packedEntries[from]} up to (but excluding)
+     * {@code packedEntries[to]} that match {@code recipeType}, skipping any diagrams whose IDs are
+     * in {@code excludedDiagramIds}.
+     */
+    static List<Diagram> resolve(
+            int[] packedEntries, int from, int to, Interactable.RecipeType recipeType,
+            List<Diagram> diagrams, BitSet excludedDiagramIds) {
+        int role = role(recipeType);
+        List<Diagram> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int entry = packedEntries[i];
+            int diagramId = entry >>> ROLE_BITS;
+            if ((entry & role) != 0 && !excludedDiagramIds.get(diagramId)) {
+                result.add(diagrams.get(diagramId));
+            }
+        }
+        return result;
+    }
+
+    /** {@code roles} is a bitmask built from {@link #role(Interactable.RecipeType)}. */
+    void add(Component component, Diagram diagram, int roles) {
+        int diagramId =
+                diagramIds.computeIfAbsent(
+                        diagram,
+                        d -> {
+                            diagrams.add(d);
+                            return diagrams.size() - 1;
+                        });
+
+        // Lists are short in practice, so a linear scan for duplicates is fine.
+        List<Integer> componentEntries =
+                entries.computeIfAbsent(component, k -> new ArrayList<>(1));
+        for (int i = 0; i < componentEntries.size(); i++) {
+            int entry = componentEntries.get(i);
+            if (entry >>> ROLE_BITS == diagramId) {
+                componentEntries.set(i, entry | roles);
+                return;
+            }
+        }
+        componentEntries.add(diagramId << ROLE_BITS | roles);
+    }
+
+    /** In the order that diagrams were first added; the index of each diagram is its ID. */
+    ImmutableList<Diagram> diagrams() {
+        return ImmutableList.copyOf(diagrams);
+    }
+
+    /** Map of component to packed entries, in insertion order. */
+    Map<Component, List<Integer>> entries() {
+        return entries;
+    }
+}
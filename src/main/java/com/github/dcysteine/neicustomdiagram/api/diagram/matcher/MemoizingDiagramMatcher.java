@@ -0,0 +1,81 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * Variant of {@link CustomDiagramMatcher} that caches the results of its diagram function, keyed
+ * by recipe type and component.
+ *
+ * <p>The cache is bounded by {@link ConfigOptions#DYNAMIC_DIAGRAM_CACHE_SIZE}, evicting the least
+ * recently used lookups first. This is intended for diagram generators that generate their
+ * diagrams dynamically, and is only worthwhile if the diagram function is deterministic for any
+ * given component.
+ *
+ * <p>Construct via {@link #create(BiFunction)}, which returns a plain
+ * {@link CustomDiagramMatcher} if caching is disabled.
+ */
+public class MemoizingDiagramMatcher extends CustomDiagramMatcher {
+    private final Cache<LookupKey, ImmutableList<Diagram>> cache;
+
+    public MemoizingDiagramMatcher(
+            BiFunction<Interactable.RecipeType, Component, Collection<Diagram>> diagramFunction,
+            long maximumSize) {
+        super(diagramFunction);
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * Returns a {@link MemoizingDiagramMatcher} if {@link ConfigOptions#DYNAMIC_DIAGRAM_CACHE_SIZE}
+     * is positive, and a plain {@link CustomDiagramMatcher} otherwise.
+     */
+    public static CustomDiagramMatcher create(
+            BiFunction<Interactable.RecipeType, Component, Collection<Diagram>> diagramFunction) {
+        int maximumSize = ConfigOptions.DYNAMIC_DIAGRAM_CACHE_SIZE.get();
+        if (maximumSize <= 0) {
+            return new CustomDiagramMatcher(diagramFunction);
+        }
+        return new MemoizingDiagramMatcher(diagramFunction, maximumSize);
+    }
+
+    @Override
+    public Collection<Diagram> match(Interactable.RecipeType recipeType, Component component) {
+        try {
+            return cache.get(
+                    LookupKey.create(recipeType, component),
+                    () -> ImmutableList.copyOf(diagramFunction.apply(recipeType, component)));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    /** Discards all cached lookups for {@code component}, for all recipe types. */
+    public void invalidate(Component component) {
+        cache.asMap().keySet().removeIf(key -> key.component().equals(component));
+    }
+
+    /**
+     * Discards all cached lookups. Call this if the diagrams returned by the diagram function may
+     * have changed (for example, after a resource reload changes text widths).
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of {@link DiagramMatcher} for diagram groups that have exactly one diagram per
+ * key, and that can build each diagram from its key.
+ *
+ * <p>If {@link ConfigOptions#ON_DEMAND_DIAGRAMS} is enabled, diagrams are not built during
+ * generation. Instead, each diagram is built the first time that it is looked up, and is then held
+ * by a soft reference, so that it can be reclaimed under memory pressure and rebuilt later.
+ * Otherwise, all diagrams are built up-front, and this class behaves just like
+ * {@link CustomDiagramMatcher}.
+ *
+ * <p>Diagram factories used in on-demand mode must remain usable after generation has finished.
+ * Otherwise, the diagram factory is released once all diagrams have been built, so that any
+ * generation-time state that it references can be garbage-collected. For the same reason, the key
+ * function should not reference the diagram generator.
+ *
+ * <p>The empty diagram predicate is evaluated once per key. If all diagrams are built up-front,
+ * this happens in {@link #precomputeEmptiness(Predicate)}; otherwise, it happens when each diagram
+ * is first built, and the result outlives the soft reference to the diagram.
+ */
+public class OnDemandDiagramMatcher<K> implements DiagramMatcher {
+    protected final ImmutableSet<K> keys;
+    protected final BiFunction<Interactable.RecipeType, Component, Optional<K>> keyFunction;
+
+    /** Will be {@code null} unless diagrams are built on demand. */
+    protected final Function<? super K, Diagram> diagramFactory;
+
+    /** Will be empty if diagrams are built on demand. */
+    protected final ImmutableMap<K, Diagram> builtDiagrams;
+
+    /**
+     * Only used if diagrams are built on demand. Lock-free, so that lookups from several threads
+     * do not block each other.
+     */
+    private final Map<K, SoftReference<Diagram>> diagramCache;
+
+    /** Set once, when this matcher's diagram group is constructed. */
+    private volatile Predicate<Diagram> emptyDiagramPredicate;
+
+    /** Whether the diagram for each key is empty, according to {@link #emptyDiagramPredicate}. */
+    private final Map<K, Boolean> emptyKeys;
+
+    protected OnDemandDiagramMatcher(
+            ImmutableSet<K> keys,
+            BiFunction<Interactable.RecipeType, Component, Optional<K>> keyFunction,
+            Function<? super K, Diagram> diagramFactory, ImmutableMap<K, Diagram> builtDiagrams) {
+        this.keys = keys;
+        this.keyFunction = keyFunction;
+        this.diagramFactory = diagramFactory;
+        this.builtDiagrams = builtDiagrams;
+        this.diagramCache = new ConcurrentHashMap<>();
+        this.emptyKeys = new ConcurrentHashMap<>();
+    }
+
+    /** Returns whether {@code key} was added to this matcher. */
+    public boolean containsKey(K key) {
+        return keys.contains(key);
+    }
+
+    /**
+     * Returns the diagram for {@code key}, building it if necessary.
+     *
+     * <p>If several threads look up the same missing diagram at once, each may build it; the
+     * diagram factory must therefore be thread-safe, and the last diagram built wins the cache.
+     */
+    public Diagram get(K key) {
+        if (diagramFactory == null) {
+            return builtDiagrams.get(key);
+        }
+
+        SoftReference<Diagram> reference = diagramCache.get(key);
+        Diagram diagram = reference == null ? null : reference.get();
+        if (diagram == null) {
+            diagram = diagramFactory.apply(key);
+            diagramCache.put(key, new SoftReference<>(diagram));
+        }
+        return diagram;
+    }
+
+    /** Returns the number of diagrams, without building any. */
+    public int diagramCount() {
+        return keys.size();
+    }
+
+    /** In on-demand mode, this will build every diagram that is not currently cached. */
+    @Override
+    public Collection<Diagram> all() {
+        if (diagramFactory == null) {
+            return builtDiagrams.values();
+        }
+        return keys.stream().map(this::get).collect(Collectors.toList());
+    }
+
+    @Override
+    public Collection<Diagram> match(Interactable.RecipeType recipeType, Component component) {
+        Optional<K> key = keyFunction.apply(recipeType, component);
+        if (!key.isPresent() || !keys.contains(key.get())) {
+            return ImmutableList.of();
+        }
+        return ImmutableList.of(get(key.get()));
+    }
+
+    /** Unless diagrams are built on demand, this will evaluate the predicate for every diagram. */
+    @Override
+    public void precomputeEmptiness(Predicate<Diagram> emptyDiagramPredicate) {
+        emptyKeys.clear();
+        builtDiagrams.forEach(
+                (key, diagram) -> emptyKeys.put(key, emptyDiagramPredicate.test(diagram)));
+        this.emptyDiagramPredicate = emptyDiagramPredicate;
+    }
+
+    @Override
+    public Collection<Diagram> allNonEmpty(Predicate<Diagram> emptyDiagramPredicate) {
+        if (emptyDiagramPredicate != this.emptyDiagramPredicate) {
+            return DiagramMatcher.super.allNonEmpty(emptyDiagramPredicate);
+        }
+
+        List<Diagram> diagrams = new ArrayList<>();
+        for (K key : keys) {
+            getNonEmpty(key, emptyDiagramPredicate).ifPresent(diagrams::add);
+        }
+        return diagrams;
+    }
+
+    @Override
+    public Collection<Diagram> matchNonEmpty(
+            Interactable.RecipeType recipeType, Component component,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        if (emptyDiagramPredicate != this.emptyDiagramPredicate) {
+            return DiagramMatcher.super.matchNonEmpty(
+                    recipeType, component, emptyDiagramPredicate);
+        }
+
+        Optional<K> key = keyFunction.apply(recipeType, component);
+        if (!key.isPresent() || !keys.contains(key.get())) {
+            return ImmutableList.of();
+        }
+        return getNonEmpty(key.get(), emptyDiagramPredicate)
+                .map(ImmutableList::of)
+                .orElse(ImmutableList.of());
+    }
+
+    @Override
+    public Collection<Diagram> matchAnyNonEmpty(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        if (emptyDiagramPredicate != this.emptyDiagramPredicate) {
+            return DiagramMatcher.super.matchAnyNonEmpty(
+                    recipeType, components, emptyDiagramPredicate);
+        }
+
+        Set<K> matchedKeys = new LinkedHashSet<>();
+        for (Component component : components) {
+            keyFunction.apply(recipeType, component)
+                    .filter(keys::contains)
+                    .ifPresent(matchedKeys::add);
+        }
+
+        List<Diagram> diagrams = new ArrayList<>(matchedKeys.size());
+        for (K key : matchedKeys) {
+            getNonEmpty(key, emptyDiagramPredicate).ifPresent(diagrams::add);
+        }
+        return diagrams;
+    }
+
+    /**
+     * Returns the diagram for {@code key}, or empty if it is empty. Diagrams already known to be
+     * empty are not rebuilt.
+     */
+    private Optional<Diagram> getNonEmpty(K key, Predicate<Diagram> emptyDiagramPredicate) {
+        Boolean empty = emptyKeys.get(key);
+        if (Boolean.TRUE.equals(empty)) {
+            return Optional.empty();
+        }
+
+        Diagram diagram = get(key);
+        if (empty == null) {
+            empty = emptyDiagramPredicate.test(diagram);
+            emptyKeys.put(key, empty);
+        }
+        return empty ? Optional.empty() : Optional.of(diagram);
+    }
+
+    public static <K> Builder<K> builder(Function<? super K, Diagram> diagramFactory) {
+        return new Builder<>(diagramFactory);
+    }
+
+    public static final class Builder<K> {
+        private final Function<? super K, Diagram> diagramFactory;
+        private final boolean onDemand;
+        private final ImmutableSet.Builder<K> keysBuilder;
+        private final ImmutableMap.Builder<K, Diagram> diagramsBuilder;
+
+        public Builder(Function<? super K, Diagram> diagramFactory) {
+            this(diagramFactory, ConfigOptions.ON_DEMAND_DIAGRAMS.get());
+        }
+
+        /** Package-private so that tests can choose the mode without loading the config. */
+        Builder(Function<? super K, Diagram> diagramFactory, boolean onDemand) {
+            this.diagramFactory = diagramFactory;
+            this.onDemand = onDemand;
+            this.keysBuilder = ImmutableSet.builder();
+            this.diagramsBuilder = ImmutableMap.builder();
+        }
+
+        /** Unless diagrams are built on demand, this will build the diagram for {@code key}. */
+        public Builder<K> addKey(K key) {
+            keysBuilder.add(key);
+            if (!onDemand) {
+                diagramsBuilder.put(key, diagramFactory.apply(key));
+            }
+            return this;
+        }
+
+        /**
+         * @param keyFunction function that maps a looked-up component to the key of its diagram,
+         *     if any.
+         */
+        public OnDemandDiagramMatcher<K> build(
+                BiFunction<Interactable.RecipeType, Component, Optional<K>> keyFunction) {
+            return new OnDemandDiagramMatcher<>(
+                    keysBuilder.build(), keyFunction, onDemand ? diagramFactory : null,
+                    diagramsBuilder.build());
+        }
+    }
+}
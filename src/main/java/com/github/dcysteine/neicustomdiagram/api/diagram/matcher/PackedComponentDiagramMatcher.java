@@ -0,0 +1,249 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.FluidComponent;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.google.common.collect.ImmutableList;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Variant of {@link ComponentDiagramMatcher} that is keyed by primitive {@code long} values.
+ *
+ * <p>Components without NBT are packed into a {@code long} (item ID and damage, or fluid ID), and
+ * looked up in an open-addressing hash map of arrays of packed {@link MatchEntries}, shared by all
+ * recipe types. Only components with NBT fall back to an object-keyed {@link ComponentIndex}.
+ * This makes lookups cheaper, and uses a lot less memory than {@link ComponentDiagramMatcher}, for
+ * diagram groups with many components.
+ *
+ * <p>Construct via {@link ComponentDiagramMatcher.Builder#buildPacked()}.
+ */
+public class PackedComponentDiagramMatcher implements DiagramMatcher {
+    /** Returned by {@link #packKey(Component)} for components that cannot be packed. */
+    public static final long NO_KEY = PackedKeyIndex.EMPTY_KEY;
+
+    /** Set on packed fluid keys, to distinguish them from item keys. */
+    private static final long FLUID_KEY_BIT = Long.MIN_VALUE;
+
+    protected final ImmutableList<Diagram> diagrams;
+
+    /** Shared by all recipe types; each entry records which recipe types it matches. */
+    protected final PackedKeyIndex<int[]> packedMatchData;
+
+    /** Components that {@link #packKey(Component)} cannot pack. */
+    protected final ComponentIndex nbtMatchData;
+    protected final ComponentIdFilter idFilter;
+    protected final int keyCount;
+
+    /** Set once, when this matcher's diagram group is constructed. */
+    protected volatile EmptyDiagrams emptyDiagrams;
+
+    /**
+     * The {@link GlobalComponentIndex} snapshot that contains this matcher, or {@code null}. Set
+     * each time that the global index is rebuilt.
+     */
+    volatile GlobalComponentIndex.Snapshot globalIndexSnapshot;
+
+    protected PackedComponentDiagramMatcher(
+            ImmutableList<Diagram> diagrams, PackedKeyIndex<int[]> packedMatchData,
+            ComponentIndex nbtMatchData, ComponentIdFilter idFilter, int keyCount) {
+        this.diagrams = diagrams;
+        this.packedMatchData = packedMatchData;
+        this.nbtMatchData = nbtMatchData;
+        this.idFilter = idFilter;
+        this.keyCount = keyCount;
+    }
+
+    /**
+     * Packs {@code component} into a {@code long}, or returns {@link #NO_KEY} if it has NBT or is
+     * an unregistered item (negative item ID), which could otherwise collide with {@link #NO_KEY}
+     * or with a fluid key.
+     *
+     * <p>Item keys hold the item ID in the upper 32 bits and the damage in the lower 32 bits.
+     * Fluid keys hold the fluid ID, with the sign bit set.
+     */
+    public static long packKey(Component component) {
+        if (component.nbtWrapper().isPresent()) {
+            return NO_KEY;
+        }
+
+        switch (component.type()) {
+            case ITEM:
+                ItemComponent itemComponent = (ItemComponent) component;
+                if (itemComponent.itemId() < 0) {
+                    return NO_KEY;
+                }
+                return ((long) itemComponent.itemId() << 32)
+                        | (itemComponent.damage() & 0xFFFF_FFFFL);
+
+            case FLUID:
+                return FLUID_KEY_BIT | (((FluidComponent) component).fluidId() & 0xFFFF_FFFFL);
+
+            default:
+                throw new IllegalArgumentException("Unhandled component type: " + component);
+        }
+    }
+
+    /** Diagrams are returned in the order that they were first added. */
+    @Override
+    public Collection<Diagram> all() {
+        return diagrams;
+    }
+
+    @Override
+    public Collection<Diagram> match(Interactable.RecipeType recipeType, Component component) {
+        return match(recipeType, component, MatchEntries.NO_DIAGRAM_IDS);
+    }
+
+    @Override
+    public void precomputeEmptiness(Predicate<Diagram> emptyDiagramPredicate) {
+        emptyDiagrams = new EmptyDiagrams(diagrams, emptyDiagramPredicate);
+    }
+
+    @Override
+    public Collection<Diagram> allNonEmpty(Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.allNonEmpty(emptyDiagramPredicate);
+        }
+        return currentEmptyDiagrams.nonEmptyDiagrams();
+    }
+
+    @Override
+    public Collection<Diagram> matchNonEmpty(
+            Interactable.RecipeType recipeType, Component component,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.matchNonEmpty(
+                    recipeType, component, emptyDiagramPredicate);
+        }
+        return match(recipeType, component, currentEmptyDiagrams.emptyDiagramIds());
+    }
+
+    /**
+     * Merges the results for each component into a single set of diagram IDs, so diagrams are
+     * returned in the order that they were first added.
+     */
+    @Override
+    public Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components) {
+        return matchAny(recipeType, components, MatchEntries.NO_DIAGRAM_IDS);
+    }
+
+    @Override
+    public Collection<Diagram> matchAnyNonEmpty(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.matchAnyNonEmpty(
+                    recipeType, components, emptyDiagramPredicate);
+        }
+        return matchAny(recipeType, components, currentEmptyDiagrams.emptyDiagramIds());
+    }
+
+    protected Collection<Diagram> match(
+            Interactable.RecipeType recipeType, Component component,
+            BitSet excludedDiagramIds) {
+        long key = packKey(component);
+        if (key == NO_KEY) {
+            return nbtMatchData.get(component, recipeType, diagrams, excludedDiagramIds);
+        }
+
+        return resolve(
+                packedMatchData.get(key, MatchEntries.NO_ENTRIES), recipeType, excludedDiagramIds);
+    }
+
+    protected Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            BitSet excludedDiagramIds) {
+        BitSet diagramIds = new BitSet(diagrams.size());
+        for (Component component : components) {
+            long key = packKey(component);
+            if (key == NO_KEY) {
+                nbtMatchData.collect(
+                        nbtMatchData.find(component), recipeType, excludedDiagramIds,
+                        diagramIds);
+            } else {
+                int[] packedEntries = packedMatchData.get(key, MatchEntries.NO_ENTRIES);
+                MatchEntries.collect(
+                        packedEntries, 0, packedEntries.length, recipeType, excludedDiagramIds,
+                        diagramIds);
+            }
+        }
+        return MatchEntries.resolve(diagramIds, diagrams);
+    }
+
+    /** Resolves {@code packedEntries}, which must have come from this matcher. */
+    Collection<Diagram> resolve(
+            int[] packedEntries, Interactable.RecipeType recipeType, BitSet excludedDiagramIds) {
+        return MatchEntries.resolve(
+                packedEntries, 0, packedEntries.length, recipeType, diagrams,
+                excludedDiagramIds);
+    }
+
+    /** Like {@link #resolve}, but excludes diagrams that {@code emptyDiagramPredicate} accepts. */
+    Collection<Diagram> resolveNonEmpty(
+            int[] packedEntries, Interactable.RecipeType recipeType,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return resolve(packedEntries, recipeType, MatchEntries.NO_DIAGRAM_IDS).stream()
+                    .filter(emptyDiagramPredicate.negate())
+                    .collect(Collectors.toList());
+        }
+        return resolve(packedEntries, recipeType, currentEmptyDiagrams.emptyDiagramIds());
+    }
+
+    /** Calls {@code action} with the packed entries for each packed key in this matcher. */
+    void forEachPackedKey(ObjLongConsumer<int[]> action) {
+        packedMatchData.forEach(action);
+    }
+
+    @Override
+    public boolean mayMatchItem(int itemId) {
+        return idFilter.mayContainItem(itemId);
+    }
+
+    @Override
+    public boolean mayMatchFluid(int fluidId) {
+        return idFilter.mayContainFluid(fluidId);
+    }
+
+    /** Returns the number of distinct components that this matcher can match. */
+    public int keyCount() {
+        return keyCount;
+    }
+
+    /** Builds from the entries collected by a builder. */
+    static PackedComponentDiagramMatcher create(MatchEntries matchEntries) {
+        Map<Long, int[]> packedEntries = new HashMap<>();
+        Map<Component, List<Integer>> nbtEntries = new HashMap<>();
+        matchEntries.entries().forEach(
+                (component, entries) -> {
+                    long key = packKey(component);
+                    if (key == NO_KEY) {
+                        nbtEntries.put(component, entries);
+                    } else {
+                        packedEntries.put(
+                                key, entries.stream().mapToInt(Integer::intValue).toArray());
+                    }
+                });
+
+        return new PackedComponentDiagramMatcher(
+                matchEntries.diagrams(), new PackedKeyIndex<>(packedEntries),
+                new ComponentIndex(nbtEntries),
+                new ComponentIdFilter(matchEntries.entries().keySet()),
+                matchEntries.entries().size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Immutable open-addressing hash map from primitive {@code long} keys to values, such as arrays of
+ * packed {@link MatchEntries}.
+ *
+ * <p>Uses linear probing over parallel arrays, so lookups do not allocate or box.
+ */
+final class PackedKeyIndex<V> {
+    /** Marks an empty slot. Must never be used as a key. */
+    static final long EMPTY_KEY = -1L;
+
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    PackedKeyIndex(Map<Long, V> entries) {
+        // Keep the load factor at or below 0.5, so that probe sequences stay short.
+        int capacity = Integer.highestOneBit(Math.max(2, entries.size() * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = entries.size();
+
+        Arrays.fill(keys, EMPTY_KEY);
+        entries.forEach(
+                (key, value) -> {
+                    int slot = slot(key);
+                    while (keys[slot] != EMPTY_KEY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                    values[slot] = value;
+                });
+    }
+
+    /** Returns the value for {@code key}, or {@code defaultValue}. Do not modify the result. */
+    @SuppressWarnings("unchecked")
+    V get(long key, V defaultValue) {
+        int slot = slot(key);
+        while (true) {
+            long slotKey = keys[slot];
+            if (slotKey == key) {
+                return (V) values[slot];
+            } else if (slotKey == EMPTY_KEY) {
+                return defaultValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(ObjLongConsumer<? super V> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY_KEY) {
+                action.accept((V) values[slot], keys[slot]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        // MurmurHash3 finalizer, to spread item IDs and damage values across all bits.
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ImmutableNbtWrapper;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import net.minecraftforge.oredict.OreDictionary;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Variant of {@link ComponentDiagramMatcher} that treats its components as patterns, rather than
+ * as exact keys.
+ *
+ * <ul>
+ *     <li>Item components with {@link ItemComponent#hasWildcardDamage()} match items with any
+ *     damage value, so there is no need to expand them into all damage permutations up-front.
+ *     <li>Components with NBT match any looked-up component whose NBT contains all of their NBT
+ *     tags, with equal values. Components without NBT match regardless of NBT.
+ * </ul>
+ *
+ * <p>A single lookup returns the union of exact, wildcard, and NBT-subset matches, in diagram ID
+ * order. For NBT-subset matching to work, the diagram group must not ignore NBT.
+ *
+ * <p>Construct via {@link ComponentDiagramMatcher.Builder#buildWildcard()}.
+ */
+public class WildcardComponentDiagramMatcher implements DiagramMatcher {
+    protected final ImmutableList<Diagram> diagrams;
+
+    /** Index of components without NBT, including wildcard-damage components. */
+    protected final ComponentIndex matchData;
+
+    /** Index of components with NBT; these are looked up via {@link #nbtPatterns}. */
+    protected final ComponentIndex nbtMatchData;
+
+    /** Map of component without NBT to the components with NBT that it was stripped from. */
+    protected final ImmutableListMultimap<Component, Component> nbtPatterns;
+
+    protected final boolean hasWildcardDamage;
+    protected final ComponentIdFilter idFilter;
+    protected final int keyCount;
+
+    /** Set once, when this matcher's diagram group is constructed. */
+    protected volatile EmptyDiagrams emptyDiagrams;
+
+    WildcardComponentDiagramMatcher(MatchEntries matchEntries) {
+        Map<Component, List<Integer>> entries = new HashMap<>();
+        Map<Component, List<Integer>> nbtEntries = new HashMap<>();
+        ImmutableListMultimap.Builder<Component, Component> nbtPatternsBuilder =
+                ImmutableListMultimap.builder();
+        boolean foundWildcardDamage = false;
+        for (Map.Entry<Component, List<Integer>> entry : matchEntries.entries().entrySet()) {
+            Component component = entry.getKey();
+            if (component.type() == Component.ComponentType.ITEM
+                    && ((ItemComponent) component).hasWildcardDamage()) {
+                foundWildcardDamage = true;
+            }
+
+            if (component.nbtWrapper().isPresent()) {
+                nbtEntries.put(component, entry.getValue());
+                nbtPatternsBuilder.put(component.withoutNbt(), component);
+            } else {
+                entries.put(component, entry.getValue());
+            }
+        }
+
+        this.diagrams = matchEntries.diagrams();
+        this.matchData = new ComponentIndex(entries);
+        this.nbtMatchData = new ComponentIndex(nbtEntries);
+        this.nbtPatterns = nbtPatternsBuilder.build();
+        this.hasWildcardDamage = foundWildcardDamage;
+        this.idFilter = new ComponentIdFilter(matchEntries.entries().keySet());
+        this.keyCount = matchEntries.entries().size();
+    }
+
+    /** Diagrams are returned in the order that they were first added. */
+    @Override
+    public Collection<Diagram> all() {
+        return diagrams;
+    }
+
+    @Override
+    public Collection<Diagram> match(Interactable.RecipeType recipeType, Component component) {
+        return match(recipeType, component, MatchEntries.NO_DIAGRAM_IDS);
+    }
+
+    @Override
+    public boolean mayMatchItem(int itemId) {
+        return idFilter.mayContainItem(itemId);
+    }
+
+    @Override
+    public boolean mayMatchFluid(int fluidId) {
+        return idFilter.mayContainFluid(fluidId);
+    }
+
+    @Override
+    public void precomputeEmptiness(Predicate<Diagram> emptyDiagramPredicate) {
+        emptyDiagrams = new EmptyDiagrams(diagrams, emptyDiagramPredicate);
+    }
+
+    @Override
+    public Collection<Diagram> allNonEmpty(Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.allNonEmpty(emptyDiagramPredicate);
+        }
+        return currentEmptyDiagrams.nonEmptyDiagrams();
+    }
+
+    @Override
+    public Collection<Diagram> matchNonEmpty(
+            Interactable.RecipeType recipeType, Component component,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.matchNonEmpty(
+                    recipeType, component, emptyDiagramPredicate);
+        }
+        return match(recipeType, component, currentEmptyDiagrams.emptyDiagramIds());
+    }
+
+    /**
+     * Merges the results for each component into a single set of diagram IDs, so diagrams are
+     * returned in diagram ID order.
+     */
+    @Override
+    public Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components) {
+        return matchAny(recipeType, components, MatchEntries.NO_DIAGRAM_IDS);
+    }
+
+    @Override
+    public Collection<Diagram> matchAnyNonEmpty(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            Predicate<Diagram> emptyDiagramPredicate) {
+        EmptyDiagrams currentEmptyDiagrams = emptyDiagrams;
+        if (currentEmptyDiagrams == null || !currentEmptyDiagrams.isFor(emptyDiagramPredicate)) {
+            return DiagramMatcher.super.matchAnyNonEmpty(
+                    recipeType, components, emptyDiagramPredicate);
+        }
+        return matchAny(recipeType, components, currentEmptyDiagrams.emptyDiagramIds());
+    }
+
+    /** Returns the number of distinct component patterns that this matcher contains. */
+    public int keyCount() {
+        return keyCount;
+    }
+
+    protected Collection<Diagram> match(
+            Interactable.RecipeType recipeType, Component component,
+            BitSet excludedDiagramIds) {
+        BitSet diagramIds = new BitSet(diagrams.size());
+        collect(recipeType, component, excludedDiagramIds, diagramIds);
+        return MatchEntries.resolve(diagramIds, diagrams);
+    }
+
+    protected Collection<Diagram> matchAny(
+            Interactable.RecipeType recipeType, Collection<? extends Component> components,
+            BitSet excludedDiagramIds) {
+        BitSet diagramIds = new BitSet(diagrams.size());
+        for (Component component : components) {
+            collect(recipeType, component, excludedDiagramIds, diagramIds);
+        }
+        return MatchEntries.resolve(diagramIds, diagrams);
+    }
+
+    /**
+     * Sets the IDs of the diagrams matching {@code component} in {@code diagramIds}: exact,
+     * wildcard, and NBT-subset matches.
+     */
+    protected void collect(
+            Interactable.RecipeType recipeType, Component component,
+            BitSet excludedDiagramIds, BitSet diagramIds) {
+        Optional<ImmutableNbtWrapper> nbt = component.nbtWrapper();
+        Component baseComponent = nbt.isPresent() ? component.withoutNbt() : component;
+        Optional<Component> wildcardComponent = getWildcardComponent(baseComponent);
+
+        collect(matchData, baseComponent, recipeType, excludedDiagramIds, diagramIds);
+        wildcardComponent.ifPresent(
+                c -> collect(matchData, c, recipeType, excludedDiagramIds, diagramIds));
+
+        if (nbt.isPresent() && !nbtPatterns.isEmpty()) {
+            collectNbtPatterns(
+                    baseComponent, nbt.get(), recipeType, excludedDiagramIds, diagramIds);
+            wildcardComponent.ifPresent(
+                    c -> collectNbtPatterns(
+                            c, nbt.get(), recipeType, excludedDiagramIds, diagramIds));
+        }
+    }
+
+    /**
+     * Returns the wildcard-damage version of {@code component}, if it could match anything that
+     * {@code component} itself would not.
+     */
+    protected Optional<Component> getWildcardComponent(Component component) {
+        if (!hasWildcardDamage || component.type() != Component.ComponentType.ITEM) {
+            return Optional.empty();
+        }
+
+        ItemComponent itemComponent = (ItemComponent) component;
+        if (itemComponent.hasWildcardDamage()) {
+            return Optional.empty();
+        }
+        Component wildcardComponent =
+                ItemComponent.create(itemComponent.item(), OreDictionary.WILDCARD_VALUE);
+        // Damageable items are always stored with damage 0, so the wildcard makes no difference.
+        return wildcardComponent.equals(component)
+                ? Optional.empty() : Optional.of(wildcardComponent);
+    }
+
+    private void collectNbtPatterns(
+            Component baseComponent, ImmutableNbtWrapper nbt, Interactable.RecipeType recipeType,
+            BitSet excludedDiagramIds, BitSet diagramIds) {
+        for (Component pattern : nbtPatterns.get(baseComponent)) {
+            if (pattern.nbtWrapper().get().isSubsetOf(nbt)) {
+                collect(nbtMatchData, pattern, recipeType, excludedDiagramIds, diagramIds);
+            }
+        }
+    }
+
+    private static void collect(
+            ComponentIndex index, Component key, Interactable.RecipeType recipeType,
+            BitSet excludedDiagramIds, BitSet diagramIds) {
+        index.collect(index.find(key), recipeType, excludedDiagramIds, diagramIds);
+    }
+}
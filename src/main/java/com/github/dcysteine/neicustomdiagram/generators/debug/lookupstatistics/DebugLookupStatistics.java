@@ -0,0 +1,145 @@
+package com.github.dcysteine.neicustomdiagram.generators.debug.lookupstatistics;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.CustomDiagramGroup;
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Text;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.main.Lang;
+import com.github.dcysteine.neicustomdiagram.main.LookupReport;
+import com.github.dcysteine.neicustomdiagram.main.LookupStatistics;
+import com.github.dcysteine.neicustomdiagram.main.Registry;
+import com.github.dcysteine.neicustomdiagram.main.config.DiagramGroupVisibility;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.init.Items;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Generates debug diagrams showing how long lookups take for each diagram group, slowest first.
+ *
+ * <p>The diagrams are rebuilt from the {@link LookupReport} each time that all diagrams are shown,
+ * so they are always up to date. See also the {@code dumpstats} command.
+ */
+public final class DebugLookupStatistics implements DiagramGenerator {
+    public static final ItemComponent ICON = ItemComponent.create(Items.clock, 0);
+
+    private final DiagramGroupInfo info;
+
+    public DebugLookupStatistics(String groupId) {
+        this.info =
+                DiagramGroupInfo.builder(
+                                Lang.DEBUG_LOOKUP_STATISTICS.trans("groupname"),
+                                groupId, ICON, 1)
+                        .setDefaultVisibility(DiagramGroupVisibility.DISABLED)
+                        .setDescription(
+                                "This diagram shows how long NEI lookups take for each diagram"
+                                        + " group.\nUse it to find out which diagram group is"
+                                        + " slowing down recipe and usage lookups.")
+                        .build();
+    }
+
+    @Override
+    public DiagramGroupInfo info() {
+        return info;
+    }
+
+    @Override
+    public CustomDiagramGroup generate() {
+        ImmutableMap<String, Supplier<Collection<Diagram>>> customBehaviorMap =
+                ImmutableMap.of(info.groupId(), DebugLookupStatistics::generateDiagrams);
+        return new CustomDiagramGroup(
+                info, new CustomDiagramMatcher((recipeType, component) -> ImmutableList.of()),
+                customBehaviorMap);
+    }
+
+    private static Collection<Diagram> generateDiagrams() {
+        ImmutableList<LookupStatistics> statistics = LookupReport.INSTANCE.statistics();
+        if (statistics.isEmpty()) {
+            return ImmutableList.of(Diagram.builder().addLayout(buildNoDataLayout()).build());
+        }
+
+        return statistics.stream()
+                .map(s -> Diagram.builder().addLayout(buildLayout(s)).build())
+                .collect(Collectors.toList());
+    }
+
+    private static Layout buildNoDataLayout() {
+        return Layout.builder()
+                .addLabel(
+                        Text.builder(
+                                        Lang.DEBUG_LOOKUP_STATISTICS.trans("nolookups"),
+                                        Grid.GRID.grid(6, 2), Grid.Direction.C)
+                                .build())
+                .build();
+    }
+
+    private static Layout buildLayout(LookupStatistics statistics) {
+        String groupId = statistics.groupId();
+        if (groupId.startsWith(Registry.GROUP_ID_PREFIX)) {
+            groupId = groupId.substring(Registry.GROUP_ID_PREFIX.length());
+        }
+
+        return Layout.builder()
+                .addLabel(
+                        Text.builder(groupId, Grid.GRID.grid(0, 0), Grid.Direction.E)
+                                .build())
+                .addAllLabels(
+                        Text.multiLineBuilder(Grid.GRID.grid(0, 1), Grid.Direction.SE)
+                                .setSmall(true)
+                                .addLine(
+                                        Lang.DEBUG_LOOKUP_STATISTICS.transf(
+                                                "lookups", statistics.lookupCount(),
+                                                statistics.emptyLookupCount()))
+                                .addLine(
+                                        Lang.DEBUG_LOOKUP_STATISTICS.transf(
+                                                "totaltime",
+                                                TimeUnit.NANOSECONDS.toMillis(
+                                                        statistics.totalNanos())))
+                                .addLine(
+                                        Lang.DEBUG_LOOKUP_STATISTICS.transf(
+                                                "latency", statistics.meanMicros(),
+                                                statistics.maxMicros()))
+                                .addLine(
+                                        Lang.DEBUG_LOOKUP_STATISTICS.transf(
+                                                "percentiles", statistics.percentileMicros(0.5),
+                                                statistics.percentileMicros(0.9),
+                                                statistics.percentileMicros(0.99)))
+                                .addLine(
+                                        Lang.DEBUG_LOOKUP_STATISTICS.transf(
+                                                "results", statistics.meanResults(),
+                                                statistics.maxResults()))
+                                .build())
+                .addAllLabels(
+                        Text.multiLineBuilder(Grid.GRID.grid(0, 4), Grid.Direction.SE)
+                                .setSmall(true)
+                                .addLine(Lang.DEBUG_LOOKUP_STATISTICS.trans("histogram"))
+                                .addAllLines(buildHistogramLines(statistics))
+                                .build())
+                .build();
+    }
+
+    /** Skips empty buckets. */
+    private static List<String> buildHistogramLines(LookupStatistics statistics) {
+        ImmutableList.Builder<String> lines = ImmutableList.builder();
+        for (int i = 0; i < LookupStatistics.BUCKET_COUNT; i++) {
+            long count = statistics.bucketCount(i);
+            if (count > 0) {
+                lines.add(
+                        Lang.DEBUG_LOOKUP_STATISTICS.transf(
+                                "histogrambucket", LookupStatistics.bucketUpperBoundMicros(i),
+                                count));
+            }
+        }
+        return lines.build();
+    }
+}
@@ -7,12 +7,11 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.DisplayComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
-import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Lines;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Slot;
-import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.MemoizingDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.tooltip.Tooltip;
 import com.github.dcysteine.neicustomdiagram.api.draw.Draw;
 import com.github.dcysteine.neicustomdiagram.api.draw.Point;
@@ -45,7 +44,6 @@ public final class DebugRuler implements DiagramGenerator {
     private static final String SLOT_KEY_FORMAT_STRING = "slot(%d,%d)";
 
     private final DiagramGroupInfo info;
-    private Layout layout;
 
     public DebugRuler(String groupId) {
         this.info =
@@ -68,13 +66,15 @@ public final class DebugRuler implements DiagramGenerator {
 
     @Override
     public DiagramGroup generate() {
-        layout = buildLayout();
+        // Capture only the layout, so that this generator can be garbage-collected.
+        Layout layout = buildLayout();
         return new DiagramGroup(
-                info, new CustomDiagramMatcher(this::generateDiagrams));
+                info,
+                MemoizingDiagramMatcher.create(
+                        (recipeType, component) -> generateDiagrams(layout, component)));
     }
 
-    private Collection<Diagram> generateDiagrams(
-            Interactable.RecipeType recipeType, Component component) {
+    private static Collection<Diagram> generateDiagrams(Layout layout, Component component) {
         return Lists.newArrayList(
                 Diagram.builder()
                         .addLayout(layout)
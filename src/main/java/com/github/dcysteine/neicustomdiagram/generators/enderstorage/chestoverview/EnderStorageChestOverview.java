@@ -1,6 +1,5 @@
 package com.github.dcysteine.neicustomdiagram.generators.enderstorage.chestoverview;
 
-import codechicken.enderstorage.storage.item.EnderItemStorage;
 import com.github.dcysteine.neicustomdiagram.api.diagram.CustomDiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
@@ -15,6 +14,7 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.SlotGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Text;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.AsyncDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.tooltip.Tooltip;
 import com.github.dcysteine.neicustomdiagram.api.draw.Draw;
@@ -83,6 +83,12 @@ public final class EnderStorageChestOverview implements DiagramGenerator {
         return info;
     }
 
+    /** Ender Storage plugin state is not thread-safe, so we must stay on the main thread. */
+    @Override
+    public boolean requiresMainThread() {
+        return true;
+    }
+
     @Override
     public CustomDiagramGroup generate() {
         layout = buildLayout();
@@ -94,8 +100,10 @@ public final class EnderStorageChestOverview implements DiagramGenerator {
                         () -> generateDiagrams(EnderStorageUtil.Owner.GLOBAL),
                         info.groupId() + LOOKUP_PERSONAL_CHESTS_SUFFIX,
                         () -> generateDiagrams(EnderStorageUtil.Owner.PERSONAL));
+        // Lookups only read Ender Storage snapshots, so they can run on the async lookup pool.
         return new CustomDiagramGroup(
-                info, new CustomDiagramMatcher(this::generateDiagrams), customBehaviorMap);
+                info, AsyncDiagramMatcher.create(new CustomDiagramMatcher(this::generateDiagrams)),
+                customBehaviorMap);
     }
 
     private Collection<Diagram> generateDiagrams(
@@ -110,8 +118,7 @@ public final class EnderStorageChestOverview implements DiagramGenerator {
 
     private Collection<Diagram> generateDiagrams(EnderStorageUtil.Owner owner) {
         List<Diagram> diagrams =
-                EnderStorageUtil.getEnderChests(owner).entrySet().stream()
-                        .filter(entry -> !EnderStorageUtil.isEmpty(entry.getValue()))
+                EnderStorageUtil.getSnapshot(owner).chests().entrySet().stream()
                         .map(entry -> buildDiagram(owner, entry.getKey(), entry.getValue()))
                         .collect(Collectors.toList());
 
@@ -124,7 +131,7 @@ public final class EnderStorageChestOverview implements DiagramGenerator {
 
     private Diagram buildDiagram(
             EnderStorageUtil.Owner owner,
-            EnderStorageFrequency frequency, EnderItemStorage storage) {
+            EnderStorageFrequency frequency, ImmutableMap<Integer, ItemStack> inventory) {
         Diagram.Builder builder = Diagram.builder().addLayout(layout);
         switch (owner) {
             case GLOBAL:
@@ -143,13 +150,9 @@ public final class EnderStorageChestOverview implements DiagramGenerator {
 
         Diagram.Builder.SlotGroupManualSubBuilder slotBuilder =
                 builder.manualInsertIntoSlotGroup(SLOT_GROUP_INVENTORY);
-        for (int i = 0; i < EnderStorageUtil.getChestSize(); i++) {
-            ItemStack itemStack = storage.getStackInSlot(i);
-            if (itemStack != null) {
-                slotBuilder.insertIntoSlot(
-                        i % 9, i / 9, DisplayComponent.builderWithNbt(itemStack).build());
-            }
-        }
+        inventory.forEach(
+                (i, itemStack) -> slotBuilder.insertIntoSlot(
+                        i % 9, i / 9, DisplayComponent.builderWithNbt(itemStack).build()));
 
         return builder.build();
     }
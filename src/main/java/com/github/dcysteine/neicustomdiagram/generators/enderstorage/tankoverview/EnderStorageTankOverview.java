@@ -1,6 +1,5 @@
 package com.github.dcysteine.neicustomdiagram.generators.enderstorage.tankoverview;
 
-import codechicken.enderstorage.storage.liquid.EnderLiquidStorage;
 import com.github.dcysteine.neicustomdiagram.api.diagram.CustomDiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
@@ -15,6 +14,7 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.SlotGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Text;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.AsyncDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.tooltip.Tooltip;
 import com.github.dcysteine.neicustomdiagram.api.draw.Draw;
@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import net.minecraft.init.Items;
+import net.minecraftforge.fluids.FluidStack;
 
 import java.util.Collection;
 import java.util.List;
@@ -85,6 +86,12 @@ public final class EnderStorageTankOverview implements DiagramGenerator {
         return info;
     }
 
+    /** Ender Storage plugin state is not thread-safe, so we must stay on the main thread. */
+    @Override
+    public boolean requiresMainThread() {
+        return true;
+    }
+
     @Override
     public CustomDiagramGroup generate() {
         headerLayout = buildHeaderLayout();
@@ -100,8 +107,10 @@ public final class EnderStorageTankOverview implements DiagramGenerator {
                         () -> generateDiagrams(EnderStorageUtil.Owner.GLOBAL),
                         info.groupId() + LOOKUP_PERSONAL_TANKS_SUFFIX,
                         () -> generateDiagrams(EnderStorageUtil.Owner.PERSONAL));
+        // Lookups only read Ender Storage snapshots, so they can run on the async lookup pool.
         return new CustomDiagramGroup(
-                info, new CustomDiagramMatcher(this::generateDiagrams), customBehaviorMap);
+                info, AsyncDiagramMatcher.create(new CustomDiagramMatcher(this::generateDiagrams)),
+                customBehaviorMap);
     }
 
     private Collection<Diagram> generateDiagrams(
@@ -115,10 +124,8 @@ public final class EnderStorageTankOverview implements DiagramGenerator {
     }
 
     private Collection<Diagram> generateDiagrams(EnderStorageUtil.Owner owner) {
-        List<Map.Entry<EnderStorageFrequency, EnderLiquidStorage>> tanks =
-                EnderStorageUtil.getEnderTanks(owner).entrySet().stream()
-                        .filter(entry -> !EnderStorageUtil.isEmpty(entry.getValue()))
-                        .collect(Collectors.toList());
+        List<Map.Entry<EnderStorageFrequency, FluidStack>> tanks =
+                EnderStorageUtil.getSnapshot(owner).tanks().entrySet().asList();
 
         // Break up the list into sub-lists of length <= TANKS_PER_DIAGRAM.
         List<Diagram> diagrams =
@@ -136,7 +143,7 @@ public final class EnderStorageTankOverview implements DiagramGenerator {
     /** {@code tanks} must have size less than or equal to {@code TANKS_PER_DIAGRAM}. */
     private Diagram buildDiagram(
             EnderStorageUtil.Owner owner,
-            List<Map.Entry<EnderStorageFrequency, EnderLiquidStorage>> tanks) {
+            List<Map.Entry<EnderStorageFrequency, FluidStack>> tanks) {
         Preconditions.checkArgument(
                 tanks.size() <= TANKS_PER_DIAGRAM, "Too many tanks: " + tanks);
 
@@ -156,10 +163,10 @@ public final class EnderStorageTankOverview implements DiagramGenerator {
         }
 
         for (int i = 0; i < tanks.size(); i++) {
-            Map.Entry<EnderStorageFrequency, EnderLiquidStorage> tank = tanks.get(i);
+            Map.Entry<EnderStorageFrequency, FluidStack> tank = tanks.get(i);
             EnderStorageFrequency frequency = tank.getKey();
             DisplayComponent fluid =
-                    DisplayComponent.builderWithNbt(tank.getValue().getFluid()).build();
+                    DisplayComponent.builderWithNbt(tank.getValue()).build();
 
             builder.autoInsertIntoSlotGroup(SLOT_GROUP_TANKS.get(i))
                     .insertIntoNextSlot(frequency.colour1().icon())
@@ -9,7 +9,6 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.component.DisplayCompon
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.FluidComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.AllDiagramsButton;
-import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.SlotGroup;
@@ -48,8 +47,6 @@ public final class ForgeFluidContainers implements DiagramGenerator {
     private final DiagramGroupInfo info;
 
     private Layout layout;
-    private ImmutableBiMap<FluidComponent, Diagram> fluidsMap;
-    private ImmutableListMultimap<ItemComponent, Diagram> emptyContainersMultimap;
 
     public ForgeFluidContainers(String groupId) {
         this.info =
@@ -83,14 +80,23 @@ public final class ForgeFluidContainers implements DiagramGenerator {
                     fluidComponent,
                     generateDiagram(fluidComponent, emptyContainersSetMultimap));
         }
-        fluidsMap = fluidsMapBuilder.build();
-        emptyContainersMultimap = ImmutableListMultimap.copyOf(emptyContainersSetMultimap);
+        ImmutableBiMap<FluidComponent, Diagram> fluidsMap = fluidsMapBuilder.build();
+        ImmutableListMultimap<ItemComponent, Diagram> emptyContainersMultimap =
+                ImmutableListMultimap.copyOf(emptyContainersSetMultimap);
 
+        // This lambda must not reference this generator, so that it can be garbage-collected.
         return new DiagramGroup(
-                info, new CustomDiagramMatcher(fluidsMap.values(), this::getDiagram));
+                info,
+                new CustomDiagramMatcher(
+                        fluidsMap.values(),
+                        (unused, component) ->
+                                getDiagram(fluidsMap, emptyContainersMultimap, component)));
     }
 
-    private List<Diagram> getDiagram(Interactable.RecipeType unused, Component component) {
+    private static List<Diagram> getDiagram(
+            ImmutableBiMap<FluidComponent, Diagram> fluidsMap,
+            ImmutableListMultimap<ItemComponent, Diagram> emptyContainersMultimap,
+            Component component) {
         Optional<FluidComponent> fluidOptional = FluidDictUtil.getFluidContents(component);
         if (!fluidOptional.isPresent() && Registry.ModDependency.GREGTECH_5.isLoaded()) {
             // Try looking up GregTech fluid display stack.
@@ -5,7 +5,6 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
-import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.DisplayComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.CustomInteractable;
@@ -14,23 +13,26 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.SlotGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Text;
-import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.ComponentDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.tooltip.Tooltip;
+import com.github.dcysteine.neicustomdiagram.main.GenerationBudget;
+import com.github.dcysteine.neicustomdiagram.main.GenerationProgress;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
 import com.github.dcysteine.neicustomdiagram.main.config.DiagramGroupVisibility;
 import com.github.dcysteine.neicustomdiagram.util.ComponentTransformer;
 import com.github.dcysteine.neicustomdiagram.util.OreDictUtil;
 import net.minecraft.init.Items;
+import net.minecraftforge.oredict.OreDictionary;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * Generates diagrams showing Forge ore dictionary data for any item.
  *
- * <p>This diagram generator generates its diagrams dynamically, and so does not support showing all
- * diagrams.
+ * <p>Ore dictionary entries with wildcard damage are matched by
+ * {@link ComponentDiagramMatcher.Builder#buildWildcard()}, so they need not be expanded into all
+ * damage permutations for lookups; permutations are only used for display.
  */
 public final class ForgeOreDictionary implements DiagramGenerator {
     public static final ItemComponent ICON = ItemComponent.create(Items.book, 0);
@@ -57,21 +59,33 @@ public final class ForgeOreDictionary implements DiagramGenerator {
         return info;
     }
 
+    /** Generation reads NEI's item list and the font renderer, which are not thread-safe. */
     @Override
-    public DiagramGroup generate() {
-        return new DiagramGroup(
-                info, new CustomDiagramMatcher(ForgeOreDictionary::generateDiagrams));
+    public boolean requiresMainThread() {
+        return true;
     }
 
-    private static Collection<Diagram> generateDiagrams(
-            Interactable.RecipeType recipeType, Component component) {
-        return OreDictUtil.getOreNames(component).stream()
-                .map(ForgeOreDictionary::generateDiagram)
-                .collect(Collectors.toList());
+    @Override
+    public DiagramGroup generate() {
+        String[] oreNames = OreDictionary.getOreNames();
+        ComponentDiagramMatcher.Builder matcherBuilder = ComponentDiagramMatcher.builder();
+        try (GenerationProgress progress =
+                     GenerationProgress.start(info.groupName(), oreNames.length)) {
+            for (String oreName : oreNames) {
+                GenerationBudget.checkCancelled();
+                List<ItemComponent> components = OreDictUtil.getComponents(oreName);
+                if (!components.isEmpty()) {
+                    matcherBuilder.addDiagram(generateDiagram(oreName, components))
+                            .addAllComponents(components);
+                }
+                progress.step();
+            }
+        }
+
+        return new DiagramGroup(info, matcherBuilder.buildWildcard());
     }
 
-    private static Diagram generateDiagram(String oreName) {
-        List<ItemComponent> components = OreDictUtil.getComponents(oreName);
+    private static Diagram generateDiagram(String oreName, List<ItemComponent> components) {
         List<List<DisplayComponent>> displayComponentPermutations =
                 components.stream()
                         .map(OreDictUtil::getPermutations)
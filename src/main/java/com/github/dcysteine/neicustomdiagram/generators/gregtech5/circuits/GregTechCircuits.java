@@ -66,7 +66,7 @@ public final class GregTechCircuits implements DiagramGenerator {
                 circuit -> diagramFactory.buildDiagrams(circuit, matcherBuilder));
 
         return new CustomDiagramGroup(
-                info, matcherBuilder.build(),
+                info, matcherBuilder.buildPacked(),
                 ImmutableMap.of(info.groupId(), () -> overviewDiagram));
     }
 
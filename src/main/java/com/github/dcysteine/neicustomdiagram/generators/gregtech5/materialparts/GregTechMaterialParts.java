@@ -1,27 +1,24 @@
 package com.github.dcysteine.neicustomdiagram.generators.gregtech5.materialparts;
 
-import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
+import com.github.dcysteine.neicustomdiagram.api.diagram.GenerationPhases;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
-import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.OnDemandDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.main.GenerationBudget;
+import com.github.dcysteine.neicustomdiagram.main.GenerationProgress;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
-import com.github.dcysteine.neicustomdiagram.main.Logger;
 import com.github.dcysteine.neicustomdiagram.util.DiagramUtil;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechFluidDictUtil;
-import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechFormatting;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechOreDictUtil;
-import com.google.common.collect.ImmutableBiMap;
-import com.google.common.collect.Lists;
 import gregtech.api.enums.Materials;
 import gregtech.api.enums.OrePrefixes;
 import gregtech.api.objects.ItemData;
 import net.minecraft.init.Items;
 
-import java.util.List;
 import java.util.Optional;
 
 /** Generates part diagrams for GregTech materials. */
@@ -37,8 +34,6 @@ public final class GregTechMaterialParts implements DiagramGenerator {
     private final RelatedMaterialsHandler relatedMaterialsHandler;
     private final DiagramFactory diagramFactory;
 
-    private ImmutableBiMap<Materials, Diagram> materialsMap;
-
     public GregTechMaterialParts(String groupId) {
         this.info =
                 DiagramGroupInfo.builder(
@@ -56,8 +51,6 @@ public final class GregTechMaterialParts implements DiagramGenerator {
         this.relatedMaterialsHandler = new RelatedMaterialsHandler();
         this.diagramFactory = new DiagramFactory(
                 this.layoutHandler, this.heatingCoilHandler, this.relatedMaterialsHandler);
-
-        this.materialsMap = null;
     }
 
     @Override
@@ -67,40 +60,38 @@ public final class GregTechMaterialParts implements DiagramGenerator {
 
     @Override
     public DiagramGroup generate() {
-        layoutHandler.initialize();
-        heatingCoilHandler.initialize();
-        relatedMaterialsHandler.initialize();
-
-        ImmutableBiMap.Builder<Materials, Diagram> materialsMapBuilder = ImmutableBiMap.builder();
-        for (Materials material : Materials.getAll()) {
-            materialsMapBuilder.put(material, diagramFactory.buildDiagram(material));
+        GenerationPhases.builder()
+                .addPhase("layouts", layoutHandler::initialize)
+                .addPhase("heatingcoils", heatingCoilHandler::initialize)
+                .addPhase("relatedmaterials", relatedMaterialsHandler::initialize)
+                .build()
+                .run();
+
+        OnDemandDiagramMatcher.Builder<Materials> matcherBuilder =
+                OnDemandDiagramMatcher.builder(diagramFactory::buildDiagram);
+        try (GenerationProgress progress =
+                     GenerationProgress.start(info.groupName(), Materials.getAll().size())) {
+            for (Materials material : Materials.getAll()) {
+                GenerationBudget.checkCancelled();
+                matcherBuilder.addKey(material);
+                progress.step();
+            }
         }
-        materialsMap = materialsMapBuilder.build();
-
-        return new DiagramGroup(
-                info, new CustomDiagramMatcher(materialsMap.values(), this::getDiagram));
+        // Static method reference, so that the diagram group does not keep this generator alive.
+        return new DiagramGroup(info, matcherBuilder.build(GregTechMaterialParts::findMaterial));
     }
 
-    /** Returns either a single-element list, or an empty list. */
-    private List<Diagram> getDiagram(Interactable.RecipeType unused, Component component) {
+    private static Optional<Materials> findMaterial(
+            Interactable.RecipeType unused, Component component) {
         // Try handling fluids and fluid display stacks by converting into a filled cell.
         component = GregTechFluidDictUtil.fillCell(component)
                 .map(Component.class::cast).orElse(component);
 
         Optional<ItemData> itemDataOptional = GregTechOreDictUtil.getItemData(component);
         if (itemDataOptional.isPresent() && itemDataOptional.get().mMaterial != null) {
-            Materials material = itemDataOptional.get().mMaterial.mMaterial;
-            if (material != null) {
-                if (materialsMap.containsKey(material)) {
-                    return Lists.newArrayList(materialsMap.get(material));
-                } else {
-                    Logger.GREGTECH_5_MATERIAL_PARTS.error(
-                            "Did not generate diagram for material: {}",
-                            GregTechFormatting.getMaterialDescription(material));
-                }
-            }
+            return Optional.ofNullable(itemDataOptional.get().mMaterial.mMaterial);
         }
 
-        return Lists.newArrayList();
+        return Optional.empty();
     }
 }
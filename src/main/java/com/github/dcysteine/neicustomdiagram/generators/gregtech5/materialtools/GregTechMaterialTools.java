@@ -1,28 +1,24 @@
 package com.github.dcysteine.neicustomdiagram.generators.gregtech5.materialtools;
 
-import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
+import com.github.dcysteine.neicustomdiagram.api.diagram.GenerationPhases;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
-import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.OnDemandDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.main.GenerationBudget;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
-import com.github.dcysteine.neicustomdiagram.main.Logger;
 import com.github.dcysteine.neicustomdiagram.util.DiagramUtil;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechFluidDictUtil;
-import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechFormatting;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechOreDictUtil;
-import com.google.common.collect.ImmutableBiMap;
-import com.google.common.collect.Lists;
 import gregtech.api.enums.Materials;
 import gregtech.api.items.GT_MetaGenerated_Tool;
 import gregtech.api.objects.ItemData;
 import gregtech.common.items.GT_MetaGenerated_Tool_01;
 import net.minecraft.item.ItemStack;
 
-import java.util.List;
 import java.util.Optional;
 
 public final class GregTechMaterialTools implements DiagramGenerator {
@@ -38,8 +34,6 @@ public final class GregTechMaterialTools implements DiagramGenerator {
     private final RecipeHandler recipeHandler;
     private final DiagramFactory diagramFactory;
 
-    private ImmutableBiMap<Materials, Diagram> materialsMap;
-
     public GregTechMaterialTools(String groupId) {
         this.info =
                 DiagramGroupInfo.builder(
@@ -57,8 +51,6 @@ public final class GregTechMaterialTools implements DiagramGenerator {
         this.layoutHandler = new LayoutHandler(this.info);
         this.recipeHandler = new RecipeHandler();
         this.diagramFactory = new DiagramFactory(this.layoutHandler, this.recipeHandler);
-
-        this.materialsMap = null;
     }
 
     @Override
@@ -68,21 +60,24 @@ public final class GregTechMaterialTools implements DiagramGenerator {
 
     @Override
     public DiagramGroup generate() {
-        layoutHandler.initialize();
-        recipeHandler.initialize();
-
-        ImmutableBiMap.Builder<Materials, Diagram> materialsMapBuilder = ImmutableBiMap.builder();
+        GenerationPhases.builder()
+                .addPhase("layouts", layoutHandler::initialize)
+                .addPhase("recipes", recipeHandler::initialize)
+                .build()
+                .run();
+
+        OnDemandDiagramMatcher.Builder<Materials> matcherBuilder =
+                OnDemandDiagramMatcher.builder(diagramFactory::buildDiagram);
         for (Materials material : Materials.getAll()) {
-            materialsMapBuilder.put(material, diagramFactory.buildDiagram(material));
+            GenerationBudget.checkCancelled();
+            matcherBuilder.addKey(material);
         }
-        materialsMap = materialsMapBuilder.build();
-
-        return new DiagramGroup(
-                info, new CustomDiagramMatcher(materialsMap.values(), this::getDiagram));
+        // Static method reference, so that the diagram group does not keep this generator alive.
+        return new DiagramGroup(info, matcherBuilder.build(GregTechMaterialTools::findMaterial));
     }
 
-    /** Returns either a single-element list, or an empty list. */
-    private List<Diagram> getDiagram(Interactable.RecipeType unused, Component component) {
+    private static Optional<Materials> findMaterial(
+            Interactable.RecipeType unused, Component component) {
         // Try handling fluids and fluid display stacks by converting into a filled cell.
         component = GregTechFluidDictUtil.fillCell(component)
                 .map(Component.class::cast).orElse(component);
@@ -99,16 +94,6 @@ public final class GregTechMaterialTools implements DiagramGenerator {
             }
         }
 
-        if (material != null) {
-            if (materialsMap.containsKey(material)) {
-                return Lists.newArrayList(materialsMap.get(material));
-            } else {
-                Logger.GREGTECH_5_MATERIAL_TOOLS.error(
-                        "Did not generate diagram for material: {}",
-                        GregTechFormatting.getMaterialDescription(material));
-            }
-        }
-
-        return Lists.newArrayList();
+        return Optional.ofNullable(material);
     }
 }
@@ -13,7 +13,7 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.SlotGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Text;
-import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.MemoizingDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.tooltip.Tooltip;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
 import com.github.dcysteine.neicustomdiagram.main.config.DiagramGroupVisibility;
@@ -66,7 +66,7 @@ public final class GregTechOreDictionary implements DiagramGenerator {
     public DiagramGroup generate() {
         return new DiagramGroup(
                 info,
-                new CustomDiagramMatcher(GregTechOreDictionary::generateDiagrams));
+                MemoizingDiagramMatcher.create(GregTechOreDictionary::generateDiagrams));
     }
 
     private static Collection<Diagram> generateDiagrams(
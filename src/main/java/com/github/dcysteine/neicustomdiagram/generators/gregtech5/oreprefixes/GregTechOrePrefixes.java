@@ -12,18 +12,15 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactab
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
 import com.github.dcysteine.neicustomdiagram.api.diagram.layout.SlotGroup;
-import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.OnDemandDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.api.diagram.tooltip.Tooltip;
+import com.github.dcysteine.neicustomdiagram.main.GenerationBudget;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
-import com.github.dcysteine.neicustomdiagram.main.Logger;
 import com.github.dcysteine.neicustomdiagram.main.config.DiagramGroupVisibility;
 import com.github.dcysteine.neicustomdiagram.util.DiagramUtil;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechDiagramUtil;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechFluidDictUtil;
-import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechFormatting;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechOreDictUtil;
-import com.google.common.collect.ImmutableBiMap;
-import com.google.common.collect.Lists;
 import gregtech.api.enums.ItemList;
 import gregtech.api.enums.Materials;
 import gregtech.api.enums.OrePrefixes;
@@ -46,7 +43,6 @@ public final class GregTechOrePrefixes implements DiagramGenerator {
     private static final Layout.SlotGroupKey SLOT_GROUP_KEY = Layout.SlotGroupKey.create("key");
 
     private final DiagramGroupInfo info;
-    private ImmutableBiMap<Materials, Diagram> materialsMap;
 
     public GregTechOrePrefixes(String groupId) {
         this.info =
@@ -61,7 +57,6 @@ public final class GregTechOrePrefixes implements DiagramGenerator {
                                         + " material."
                                         + "\nMostly useful for modpack development.")
                         .build();
-        this.materialsMap = null;
     }
 
     @Override
@@ -71,14 +66,14 @@ public final class GregTechOrePrefixes implements DiagramGenerator {
 
     @Override
     public DiagramGroup generate() {
-        ImmutableBiMap.Builder<Materials, Diagram> materialsMapBuilder = ImmutableBiMap.builder();
+        OnDemandDiagramMatcher.Builder<Materials> matcherBuilder =
+                OnDemandDiagramMatcher.builder(this::generateDiagram);
         for (Materials material : Materials.getAll()) {
-            materialsMapBuilder.put(material, generateDiagram(material));
+            GenerationBudget.checkCancelled();
+            matcherBuilder.addKey(material);
         }
-        materialsMap = materialsMapBuilder.build();
-
-        return new DiagramGroup(
-                info, new CustomDiagramMatcher(materialsMap.values(), this::getDiagram));
+        // Static method reference, so that the diagram group does not keep this generator alive.
+        return new DiagramGroup(info, matcherBuilder.build(GregTechOrePrefixes::findMaterial));
     }
 
     private Diagram generateDiagram(Materials material) {
@@ -106,27 +101,18 @@ public final class GregTechOrePrefixes implements DiagramGenerator {
         return builder.build();
     }
 
-    /** Returns either a single-element list, or an empty list. */
-    private List<Diagram> getDiagram(Interactable.RecipeType unused, Component component) {
+    private static Optional<Materials> findMaterial(
+            Interactable.RecipeType unused, Component component) {
         // Try handling fluids and fluid display stacks by converting into a filled cell.
         component = GregTechFluidDictUtil.fillCell(component)
                 .map(Component.class::cast).orElse(component);
 
         Optional<ItemData> itemDataOptional = GregTechOreDictUtil.getItemData(component);
         if (itemDataOptional.isPresent() && itemDataOptional.get().mMaterial != null) {
-            Materials material = itemDataOptional.get().mMaterial.mMaterial;
-            if (material != null) {
-                if (materialsMap.containsKey(material)) {
-                    return Lists.newArrayList(materialsMap.get(material));
-                } else {
-                    Logger.GREGTECH_5_ORE_PREFIXES.error(
-                            "Did not generate diagram for material: {}",
-                            GregTechFormatting.getMaterialDescription(material));
-                }
-            }
+            return Optional.ofNullable(itemDataOptional.get().mMaterial.mMaterial);
         }
 
-        return Lists.newArrayList();
+        return Optional.empty();
     }
 
     private Layout buildLayout(Materials material) {
@@ -4,8 +4,11 @@ import com.github.bartimaeusnek.bartworks.system.material.Werkstoff;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
+import com.github.dcysteine.neicustomdiagram.api.diagram.GenerationPhases;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.ComponentDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.main.GenerationBudget;
+import com.github.dcysteine.neicustomdiagram.main.GenerationProgress;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
 import com.github.dcysteine.neicustomdiagram.main.Logger;
 import com.github.dcysteine.neicustomdiagram.main.Registry;
@@ -67,65 +70,84 @@ public final class GregTechOreProcessing implements DiagramGenerator {
 
     @Override
     public DiagramGroup generate() {
-        labelHandler.initialize();
-        layoutHandler.initialize();
-        recipeHandler.initialize();
+        GenerationPhases.builder()
+                .addPhase("labels", labelHandler::initialize)
+                .addPhase("layouts", layoutHandler::initialize, "labels")
+                .addPhase("recipes", recipeHandler::initialize)
+                .build()
+                .run();
 
         ComponentDiagramMatcher.Builder matcherBuilder = ComponentDiagramMatcher.builder();
 
-        for (Materials material : Materials.getAll()) {
-            if ((material.mTypes & 8) == 0) {
-                // Bit 4 is the flag controlling whether ores get generated.
-                // So if it's off, skip this material.
-                continue;
-            }
-
-            List<ItemComponent> rawOres =
-                    GregTechOreDictUtil.getAllComponents(OrePrefixes.ore, material);
-            if (rawOres.isEmpty()) {
-                continue;
-            }
-
-            OTHER_ORE_PREFIXES.forEach(
-                    prefix -> rawOres.addAll(
-                            GregTechOreDictUtil.getAllComponents(prefix, material)));
-
-            buildDiagram(matcherBuilder, rawOres);
+        int total = Materials.getAll().size();
+        if (Registry.ModDependency.BARTWORKS.isLoaded()) {
+            total += Werkstoff.werkstoffHashSet.size();
+        }
+        if (Registry.ModDependency.GT_PLUS_PLUS.isLoaded()) {
+            total += Material.mMaterialMap.size();
         }
 
-        if (Registry.ModDependency.BARTWORKS.isLoaded()) {
-            for (Werkstoff werkstoff : Werkstoff.werkstoffHashSet) {
-                Optional<ItemComponent> rawOre =
-                        BartWorksOreDictUtil.getComponent(OrePrefixes.ore, werkstoff);
-                if (!rawOre.isPresent()) {
+        try (GenerationProgress progress = GenerationProgress.start(info.groupName(), total)) {
+            for (Materials material : Materials.getAll()) {
+                GenerationBudget.checkCancelled();
+                progress.step();
+                if ((material.mTypes & 8) == 0) {
+                    // Bit 4 is the flag controlling whether ores get generated.
+                    // So if it's off, skip this material.
                     continue;
                 }
 
-                List<ItemComponent> rawOres = new ArrayList<>();
-                rawOres.add(rawOre.get());
+                List<ItemComponent> rawOres =
+                        GregTechOreDictUtil.getAllComponents(OrePrefixes.ore, material);
+                if (rawOres.isEmpty()) {
+                    continue;
+                }
 
                 OTHER_ORE_PREFIXES.forEach(
-                        prefix -> BartWorksOreDictUtil.getComponent(prefix, werkstoff)
-                                .ifPresent(rawOres::add));
+                        prefix -> rawOres.addAll(
+                                GregTechOreDictUtil.getAllComponents(prefix, material)));
 
                 buildDiagram(matcherBuilder, rawOres);
             }
-        }
 
-        if (Registry.ModDependency.GT_PLUS_PLUS.isLoaded()) {
-            for (Material material : Material.mMaterialMap) {
-                ItemStack ore = material.getOre(1);
-                if (ore == null
-                        || !(Block.getBlockFromItem(ore.getItem()) instanceof BlockBaseOre)) {
-                    // Skip non-GT++ ore blocks to avoid duplicate diagrams.
-                    continue;
+            if (Registry.ModDependency.BARTWORKS.isLoaded()) {
+                for (Werkstoff werkstoff : Werkstoff.werkstoffHashSet) {
+                    GenerationBudget.checkCancelled();
+                    progress.step();
+                    Optional<ItemComponent> rawOre =
+                            BartWorksOreDictUtil.getComponent(OrePrefixes.ore, werkstoff);
+                    if (!rawOre.isPresent()) {
+                        continue;
+                    }
+
+                    List<ItemComponent> rawOres = new ArrayList<>();
+                    rawOres.add(rawOre.get());
+
+                    OTHER_ORE_PREFIXES.forEach(
+                            prefix -> BartWorksOreDictUtil.getComponent(prefix, werkstoff)
+                                    .ifPresent(rawOres::add));
+
+                    buildDiagram(matcherBuilder, rawOres);
                 }
+            }
 
-                buildDiagram(matcherBuilder, ImmutableList.of(ItemComponent.create(ore)));
+            if (Registry.ModDependency.GT_PLUS_PLUS.isLoaded()) {
+                for (Material material : Material.mMaterialMap) {
+                    GenerationBudget.checkCancelled();
+                    progress.step();
+                    ItemStack ore = material.getOre(1);
+                    if (ore == null
+                            || !(Block.getBlockFromItem(ore.getItem()) instanceof BlockBaseOre)) {
+                        // Skip non-GT++ ore blocks to avoid duplicate diagrams.
+                        continue;
+                    }
+
+                    buildDiagram(matcherBuilder, ImmutableList.of(ItemComponent.create(ore)));
+                }
             }
         }
 
-        return new DiagramGroup(info, matcherBuilder.build());
+        return new DiagramGroup(info, matcherBuilder.buildPacked());
     }
 
     private void buildDiagram(
@@ -10,6 +10,7 @@ import com.github.dcysteine.neicustomdiagram.api.draw.Draw;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
 import com.github.dcysteine.neicustomdiagram.util.ComponentTransformer;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MultimapBuilder;
@@ -68,8 +69,8 @@ class DiagramHandler {
         return Lists.newArrayList(menuDiagram);
     }
 
-    List<Diagram> getDiagrams(GregTechRecipeDebugger.View view) {
-        return diagramListMultimap.get(view);
+    ImmutableListMultimap<GregTechRecipeDebugger.View, Diagram> getAllDiagrams() {
+        return ImmutableListMultimap.copyOf(diagramListMultimap);
     }
 
     private CustomInteractable buildViewButton(GregTechRecipeDebugger.View view) {
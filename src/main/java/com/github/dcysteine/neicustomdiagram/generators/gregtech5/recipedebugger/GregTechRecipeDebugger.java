@@ -4,13 +4,14 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.CustomDiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
+import com.github.dcysteine.neicustomdiagram.api.diagram.GenerationPhases;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
-import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
 import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
 import com.github.dcysteine.neicustomdiagram.main.Lang;
 import com.github.dcysteine.neicustomdiagram.main.config.DiagramGroupVisibility;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechOreDictUtil;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import gregtech.api.enums.ItemList;
@@ -110,28 +111,38 @@ public final class GregTechRecipeDebugger implements DiagramGenerator {
 
     @Override
     public CustomDiagramGroup generate() {
-        labelHandler.initialize();
-        layoutFactory.initialize();
-        recipeHandler.initialize();
-        diagramHandler.initialize();
+        GenerationPhases.builder()
+                .addPhase("labels", labelHandler::initialize)
+                .addPhase("layouts", layoutFactory::initialize, "labels")
+                .addPhase("recipes", recipeHandler::initialize)
+                .addPhase("diagrams", diagramHandler::initialize, "layouts", "recipes")
+                .build()
+                .run();
+
+        // Copy out the diagrams, so that the diagram group does not keep this generator, and all
+        // of its recipe data, alive.
+        ImmutableListMultimap<View, Diagram> diagrams = diagramHandler.getAllDiagrams();
 
         ImmutableMap.Builder<String, Supplier<Collection<Diagram>>> customBehaviorMapBuilder =
                 ImmutableMap.builder();
         Arrays.stream(View.values())
                 .forEach(view -> customBehaviorMapBuilder.put(
-                        view.behaviorId(info), () -> diagramHandler.getDiagrams(view)));
+                        view.behaviorId(info), () -> diagrams.get(view)));
 
         return new CustomDiagramGroup(
                 info,
-                new CustomDiagramMatcher(diagramHandler.getMenuDiagram(), this::getDiagram),
+                new CustomDiagramMatcher(
+                        diagramHandler.getMenuDiagram(),
+                        (unused, component) -> getDiagram(diagrams, component)),
                 customBehaviorMapBuilder.build());
     }
 
-    /** Returns either a single-element list, or an empty list. */
-    private List<Diagram> getDiagram(Interactable.RecipeType unused, Component component) {
+    /** Returns either a list of diagrams, or an empty list. */
+    private static List<Diagram> getDiagram(
+            ImmutableListMultimap<View, Diagram> diagrams, Component component) {
         if (component.type() == Component.ComponentType.ITEM
                 && ((ItemComponent) component).item() == RecipeHandler.PROGRAMMED_CIRCUIT) {
-            return diagramHandler.getDiagrams(View.PROGRAMMED_CIRCUITS);
+            return diagrams.get(View.PROGRAMMED_CIRCUITS);
         }
 
         return Lists.newArrayList();
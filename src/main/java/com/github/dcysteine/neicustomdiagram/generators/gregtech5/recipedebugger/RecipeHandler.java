@@ -4,6 +4,9 @@ import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.DisplayComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.FluidComponent;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+import com.github.dcysteine.neicustomdiagram.main.GenerationBudget;
+import com.github.dcysteine.neicustomdiagram.main.GenerationProgress;
+import com.github.dcysteine.neicustomdiagram.main.Lang;
 import com.github.dcysteine.neicustomdiagram.main.Logger;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechOreDictUtil;
 import com.github.dcysteine.neicustomdiagram.util.gregtech5.GregTechRecipeUtil;
@@ -286,49 +289,64 @@ class RecipeHandler {
 
     /** This method must be called before any other methods are called. */
     void initialize() {
+        String progressTitle = Lang.GREGTECH_5_RECIPE_DEBUGGER.trans("groupname");
+
         // First pass: build recipe data.
-        for (RecipeMap recipeMap : RecipeMap.values()) {
-            Logger.GREGTECH_5_RECIPE_DEBUGGER.info(
-                    "Checking recipes, pass 1: {}", recipeMap.name());
-
-            ImmutableList.Builder<Recipe> recipeListBuilder = ImmutableList.builder();
-                    recipeMap.recipeMap.mRecipeList.stream()
-                            .map(recipe -> Recipe.create(recipeMap, recipe))
-                            .filter(recipe -> RecipeHandler.filterRecipes(recipeMap, recipe))
-                            .forEach(recipeListBuilder::add);
-
-            RecipePartitioner recipePartitioner = new RecipePartitioner(recipeListBuilder.build());
-            recipePartitioner.initialize();
-            allRecipes.put(recipeMap, recipePartitioner);
+        try (GenerationProgress progress =
+                     GenerationProgress.start(progressTitle, RecipeMap.values().length)) {
+            for (RecipeMap recipeMap : RecipeMap.values()) {
+                Logger.GREGTECH_5_RECIPE_DEBUGGER.info(
+                        "Checking recipes, pass 1: {}", recipeMap.name());
+
+                ImmutableList.Builder<Recipe> recipeListBuilder = ImmutableList.builder();
+                        recipeMap.recipeMap.mRecipeList.stream()
+                                .map(recipe -> Recipe.create(recipeMap, recipe))
+                                .filter(recipe -> RecipeHandler.filterRecipes(recipeMap, recipe))
+                                .forEach(recipeListBuilder::add);
+
+                RecipePartitioner recipePartitioner =
+                        new RecipePartitioner(recipeListBuilder.build());
+                recipePartitioner.initialize();
+                allRecipes.put(recipeMap, recipePartitioner);
+                GenerationBudget.checkCancelled();
+                progress.step();
+            }
         }
 
         // Second pass: check recipes for overlap, etc.
-        for (RecipeMap recipeMap : RecipeMap.values()) {
-            Logger.GREGTECH_5_RECIPE_DEBUGGER.info(
-                    "Checking recipes, pass 2: {} [{}]",
-                    recipeMap.name(), allRecipes.get(recipeMap).size());
-
-            RecipePartitioner recipePartitioner = allRecipes.get(recipeMap);
-            for (Recipe recipe : recipePartitioner.allRecipes()) {
-                Iterable<Recipe> matchingRecipes =
-                        recipePartitioner.lookup(recipe.inputs().keySet());
-
-                if (consumesCircuit(recipe)) {
-                    consumeCircuitRecipes.add(recipe);
-                }
-
-                if (unnecessaryCircuit(recipe, matchingRecipes)) {
-                    unnecessaryCircuitRecipes.add(recipe);
-                }
-
-                collidingRecipes.addAll(findCollidingRecipes(recipe, matchingRecipes));
-
-                if (voidingRecipe(recipe)) {
-                    voidingRecipes.add(recipe);
-                }
-
-                if (unequalCellRecipe(recipe)) {
-                    unequalCellRecipes.add(recipe);
+        int totalRecipes =
+                allRecipes.values().stream().mapToInt(RecipePartitioner::size).sum();
+        try (GenerationProgress progress =
+                     GenerationProgress.start(progressTitle, totalRecipes)) {
+            for (RecipeMap recipeMap : RecipeMap.values()) {
+                Logger.GREGTECH_5_RECIPE_DEBUGGER.info(
+                        "Checking recipes, pass 2: {} [{}]",
+                        recipeMap.name(), allRecipes.get(recipeMap).size());
+
+                RecipePartitioner recipePartitioner = allRecipes.get(recipeMap);
+                for (Recipe recipe : recipePartitioner.allRecipes()) {
+                    GenerationBudget.checkCancelled();
+                    progress.step();
+                    Iterable<Recipe> matchingRecipes =
+                            recipePartitioner.lookup(recipe.inputs().keySet());
+
+                    if (consumesCircuit(recipe)) {
+                        consumeCircuitRecipes.add(recipe);
+                    }
+
+                    if (unnecessaryCircuit(recipe, matchingRecipes)) {
+                        unnecessaryCircuitRecipes.add(recipe);
+                    }
+
+                    collidingRecipes.addAll(findCollidingRecipes(recipe, matchingRecipes));
+
+                    if (voidingRecipe(recipe)) {
+                        voidingRecipes.add(recipe);
+                    }
+
+                    if (unequalCellRecipe(recipe)) {
+                        unequalCellRecipes.add(recipe);
+                    }
                 }
             }
         }
@@ -0,0 +1,70 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Grid;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Layout;
+import com.github.dcysteine.neicustomdiagram.api.diagram.layout.Text;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.CustomDiagramMatcher;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lightweight diagram group that is registered with NEI in place of a real diagram group, and
+ * forwards all lookups to it.
+ *
+ * <p>Until the real diagram group has been set, this diagram group will return no diagrams, except
+ * for a single "still generating" diagram when looking up all diagrams. The real diagram group can
+ * be set from any thread, and will be swapped in atomically.
+ */
+public class DelegatingDiagramGroup extends DiagramGroup {
+    private final AtomicReference<DiagramGroup> delegate;
+    private final Diagram placeholderDiagram;
+
+    public DelegatingDiagramGroup(DiagramGroupInfo info) {
+        super(info, new CustomDiagramMatcher((recipeType, component) -> ImmutableList.of()));
+
+        this.delegate = new AtomicReference<>();
+        this.placeholderDiagram = buildPlaceholderDiagram();
+    }
+
+    public Optional<DiagramGroup> getDelegate() {
+        return Optional.ofNullable(delegate.get());
+    }
+
+    public void setDelegate(DiagramGroup diagramGroup) {
+        delegate.set(diagramGroup);
+    }
+
+    @Override
+    public DiagramGroup loadDiagrams(
+            String id, Interactable.RecipeType recipeType, Object... stacks) {
+        DiagramGroup diagramGroup = delegate.get();
+        if (diagramGroup != null) {
+            return diagramGroup.loadDiagrams(id, recipeType, stacks);
+        }
+
+        if (id.equals(info.groupId())) {
+            return newInstance(ImmutableList.of(placeholderDiagram));
+        } else {
+            return newInstance(ImmutableList.of());
+        }
+    }
+
+    private static Diagram buildPlaceholderDiagram() {
+        return Diagram.builder()
+                .addLayout(
+                        Layout.builder()
+                                .addLabel(
+                                        Text.builder(
+                                                        Lang.API.trans("stillgenerating"),
+                                                        Grid.GRID.grid(6, 2), Grid.Direction.C)
+                                                .build())
+                                .build())
+                .build();
+    }
+}
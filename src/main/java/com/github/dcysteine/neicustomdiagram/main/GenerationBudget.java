@@ -0,0 +1,71 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that enforces the per-group time budget set by
+ * {@link ConfigOptions#GENERATION_TIME_BUDGET_SECONDS}.
+ *
+ * <p>Cancellation is cooperative: diagram generators should call {@link #checkCancelled()} in
+ * their main loops. The deadline is tracked per thread, so that diagram groups being generated in
+ * parallel each get their own budget.
+ */
+public final class GenerationBudget {
+    /** Thrown by {@link #checkCancelled()} once the current diagram group is over budget. */
+    public static final class CancelledException extends RuntimeException {
+        private CancelledException(long budgetSeconds) {
+            super(String.format("Exceeded time budget of %d seconds", budgetSeconds));
+        }
+    }
+
+    /** Holds the deadline in {@link System#nanoTime()} units, if a budget is set. */
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    // Static class.
+    private GenerationBudget() {}
+
+    /** Starts the time budget for the current thread, if one is configured. */
+    static void start() {
+        int budgetSeconds = ConfigOptions.GENERATION_TIME_BUDGET_SECONDS.get();
+        if (budgetSeconds > 0) {
+            deadline.set(System.nanoTime() + TimeUnit.SECONDS.toNanos(budgetSeconds));
+        }
+    }
+
+    static void stop() {
+        deadline.remove();
+    }
+
+    /**
+     * Wraps {@code runnable} so that it runs under the current thread's time budget, even if it is
+     * run on a different thread.
+     */
+    public static Runnable inheritBudget(Runnable runnable) {
+        Long currentDeadline = deadline.get();
+        if (currentDeadline == null) {
+            return runnable;
+        }
+
+        return () -> {
+            deadline.set(currentDeadline);
+            try {
+                runnable.run();
+            } finally {
+                deadline.remove();
+            }
+        };
+    }
+
+    /**
+     * Throws {@link CancelledException} if the current thread has a time budget, and it has been
+     * exceeded. This is cheap enough to call once per item.
+     */
+    public static void checkCancelled() {
+        Long currentDeadline = deadline.get();
+        if (currentDeadline != null && System.nanoTime() - currentDeadline > 0) {
+            throw new CancelledException(ConfigOptions.GENERATION_TIME_BUDGET_SECONDS.get());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import cpw.mods.fml.common.ProgressManager;
+
+import java.util.Locale;
+
+/**
+ * Class that reports diagram generation progress through FML's {@link ProgressManager}, so that it
+ * shows up on the loading screen.
+ *
+ * <p>Progress is only reported while diagrams are being generated on the thread that started
+ * generation; on any other thread, this class does nothing. Updates are throttled to at most
+ * {@link #MAX_BAR_STEPS} per progress bar, so that calling {@link #step()} for every item is cheap.
+ *
+ * <p>Use with try-with-resources, so that the progress bar is always popped.
+ */
+public final class GenerationProgress implements AutoCloseable {
+    public static final int MAX_BAR_STEPS = 100;
+
+    private static volatile Thread reportingThread;
+
+    private final ProgressManager.ProgressBar bar;
+    private final int total;
+    private int count;
+
+    private GenerationProgress(ProgressManager.ProgressBar bar, int total) {
+        this.bar = bar;
+        this.total = total;
+        this.count = 0;
+    }
+
+    /** Starts reporting progress for diagram generation happening on the current thread. */
+    static void enableForCurrentThread() {
+        reportingThread = Thread.currentThread();
+    }
+
+    static void disable() {
+        reportingThread = null;
+    }
+
+    /**
+     * Starts a new progress bar with the given title, for {@code total} items.
+     *
+     * <p>Returns a no-op instance if progress is not being reported for the current thread.
+     */
+    public static GenerationProgress start(String title, int total) {
+        if (total <= 0 || Thread.currentThread() != reportingThread) {
+            return new GenerationProgress(null, total);
+        }
+
+        return new GenerationProgress(
+                ProgressManager.push(title, Math.min(total, MAX_BAR_STEPS)), total);
+    }
+
+    /** Marks one more item as done. */
+    public void step() {
+        count++;
+        if (bar == null) {
+            return;
+        }
+
+        long targetStep = Math.min((long) count, total) * bar.getSteps() / total;
+        while (bar.getStep() < targetStep) {
+            bar.step(String.format(Locale.ROOT, "%,d / %,d", count, total));
+        }
+    }
+
+    /** Fills up any remaining steps, and pops the progress bar. */
+    @Override
+    public void close() {
+        if (bar == null) {
+            return;
+        }
+
+        while (bar.getStep() < bar.getSteps()) {
+            bar.step(String.format(Locale.ROOT, "%,d / %,d", total, total));
+        }
+        ProgressManager.pop(bar);
+    }
+}
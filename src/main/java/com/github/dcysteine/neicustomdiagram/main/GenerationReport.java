@@ -0,0 +1,201 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.ComponentDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.DiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.OnDemandDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.PackedComponentDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.WildcardComponentDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.main.config.Config;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton class that measures diagram generation, and reports on it.
+ *
+ * <p>The report is logged, and also written in CSV format to {@link #REPORT_FILE_NAME} in the
+ * config directory, so that it can be compared across runs.
+ */
+public enum GenerationReport {
+    // Singleton class; enforced by being an enum.
+    INSTANCE;
+
+    public static final String REPORT_FILE_NAME = "NEICustomDiagram-generation-report.csv";
+
+    /** Value used for statistics that are not supported by the current JVM. */
+    public static final long UNSUPPORTED = -1L;
+
+    @AutoValue
+    public abstract static class Entry {
+        public static final String CSV_HEADER =
+                "group_id,wall_time_ms,cpu_time_ms,allocated_bytes,diagram_count,matcher_key_count";
+
+        public static Entry create(
+                String groupId, long wallTimeNanos, long cpuTimeNanos, long allocatedBytes,
+                int diagramCount, int matcherKeyCount) {
+            return new AutoValue_GenerationReport_Entry(
+                    groupId, wallTimeNanos, cpuTimeNanos, allocatedBytes, diagramCount,
+                    matcherKeyCount);
+        }
+
+        public abstract String groupId();
+        public abstract long wallTimeNanos();
+
+        /** Will be {@link GenerationReport#UNSUPPORTED} if not supported by the current JVM. */
+        public abstract long cpuTimeNanos();
+
+        /** Will be {@link GenerationReport#UNSUPPORTED} if not supported by the current JVM. */
+        public abstract long allocatedBytes();
+
+        public abstract int diagramCount();
+
+        /**
+         * Will be 0 for diagram groups that do not use a {@link ComponentDiagramMatcher},
+         * {@link PackedComponentDiagramMatcher}, or {@link WildcardComponentDiagramMatcher}.
+         */
+        public abstract int matcherKeyCount();
+
+        public String toCsvLine() {
+            return String.format(
+                    Locale.ROOT, "%s,%d,%d,%d,%d,%d",
+                    groupId(), toMillis(wallTimeNanos()), toMillis(cpuTimeNanos()),
+                    allocatedBytes(), diagramCount(), matcherKeyCount());
+        }
+
+        public String toLogLine() {
+            return String.format(
+                    Locale.ROOT,
+                    "[%s]: %,d ms wall, %,d ms CPU, %,d KiB allocated, %,d diagrams, %,d keys",
+                    groupId(), toMillis(wallTimeNanos()), toMillis(cpuTimeNanos()),
+                    allocatedBytes() == UNSUPPORTED ? UNSUPPORTED : allocatedBytes() / 1024,
+                    diagramCount(), matcherKeyCount());
+        }
+
+        private static long toMillis(long nanos) {
+            return nanos == UNSUPPORTED ? UNSUPPORTED : TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+
+    /**
+     * Latest entry for each group ID, in the order that groups were first measured. Regenerating
+     * a diagram group replaces its entry. Guarded by {@code this}.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Calls {@link DiagramGenerator#generate()}, recording statistics about it.
+     *
+     * <p>CPU time and allocated bytes are measured for the current thread only, so this method
+     * must be called on the same thread that does the generating.
+     */
+    public DiagramGroup measure(DiagramGenerator generator) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long startWallTime = System.nanoTime();
+        long startCpuTime = getCurrentThreadCpuTime(threadMXBean);
+        long startAllocatedBytes = getCurrentThreadAllocatedBytes(threadMXBean);
+
+        DiagramGroup diagramGroup = generator.generate();
+
+        long wallTime = System.nanoTime() - startWallTime;
+        long cpuTime = difference(getCurrentThreadCpuTime(threadMXBean), startCpuTime);
+        long allocatedBytes =
+                difference(getCurrentThreadAllocatedBytes(threadMXBean), startAllocatedBytes);
+
+        DiagramMatcher matcher = diagramGroup.matcher();
+        int matcherKeyCount = 0;
+        if (matcher instanceof ComponentDiagramMatcher) {
+            matcherKeyCount = ((ComponentDiagramMatcher) matcher).keyCount();
+        } else if (matcher instanceof PackedComponentDiagramMatcher) {
+            matcherKeyCount = ((PackedComponentDiagramMatcher) matcher).keyCount();
+        } else if (matcher instanceof WildcardComponentDiagramMatcher) {
+            matcherKeyCount = ((WildcardComponentDiagramMatcher) matcher).keyCount();
+        }
+        // Avoid calling all() on on-demand matchers, as that would build every diagram.
+        int diagramCount =
+                matcher instanceof OnDemandDiagramMatcher
+                        ? ((OnDemandDiagramMatcher<?>) matcher).diagramCount()
+                        : matcher.all().size();
+        Entry entry =
+                Entry.create(
+                        generator.info().groupId(), wallTime, cpuTime, allocatedBytes,
+                        diagramCount, matcherKeyCount);
+        synchronized (this) {
+            entries.put(entry.groupId(), entry);
+        }
+
+        return diagramGroup;
+    }
+
+    /**
+     * Logs a summary of the latest measurement for each diagram group, and writes the report file.
+     */
+    public void write() {
+        ImmutableList<Entry> entriesCopy;
+        synchronized (this) {
+            entriesCopy = ImmutableList.copyOf(entries.values());
+        }
+
+        Logger.MOD.info("Diagram generation report (slowest first):");
+        entriesCopy.stream()
+                .sorted(Comparator.comparingLong(Entry::wallTimeNanos).reversed())
+                .forEach(entry -> Logger.MOD.info("  {}", entry.toLogLine()));
+        Logger.MOD.info(
+                "Total wall time: {} ms",
+                TimeUnit.NANOSECONDS.toMillis(
+                        entriesCopy.stream().mapToLong(Entry::wallTimeNanos).sum()));
+
+        List<String> lines = new ArrayList<>();
+        lines.add(Entry.CSV_HEADER);
+        entriesCopy.forEach(entry -> lines.add(entry.toCsvLine()));
+
+        File reportFile = Config.getConfigDirectoryFile(REPORT_FILE_NAME);
+        try {
+            Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Logger.MOD.error("Could not write generation report!", e);
+        }
+    }
+
+    private static long getCurrentThreadCpuTime(ThreadMXBean threadMXBean) {
+        if (!threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            return UNSUPPORTED;
+        }
+        return threadMXBean.getCurrentThreadCpuTime();
+    }
+
+    private static long getCurrentThreadAllocatedBytes(ThreadMXBean threadMXBean) {
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return UNSUPPORTED;
+        }
+
+        com.sun.management.ThreadMXBean sunThreadMXBean =
+                (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!sunThreadMXBean.isThreadAllocatedMemorySupported()
+                || !sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return UNSUPPORTED;
+        }
+        return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long difference(long end, long start) {
+        if (end == UNSUPPORTED || start == UNSUPPORTED) {
+            return UNSUPPORTED;
+        }
+        return end - start;
+    }
+}
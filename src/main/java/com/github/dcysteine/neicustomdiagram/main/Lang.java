@@ -6,9 +6,12 @@ import net.minecraft.util.StatCollector;
 public final class Lang {
     public static final Lang API = new Lang("neicustomdiagram.api.");
     public static final Lang UTIL = new Lang("neicustomdiagram.util.");
+    public static final Lang COMMAND = new Lang("neicustomdiagram.command.");
 
     public static final Lang GREGTECH_5_UTIL = new Lang("neicustomdiagram.util.gregtech5.");
 
+    public static final Lang DEBUG_LOOKUP_STATISTICS =
+            new Lang("neicustomdiagram.generators.debug.lookupstatistics.");
     public static final Lang DEBUG_RULER = new Lang("neicustomdiagram.generators.debug.ruler.");
 
     public static final Lang ENDER_STORAGE_CHEST_OVERVIEW =
@@ -0,0 +1,66 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
+import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Diagram group that defers calling {@link DiagramGenerator#generate()} until the first lookup
+ * that actually needs the generated diagram group.
+ *
+ * <p>Generation is memoized and thread-safe: concurrent lookups will wait for a single call to
+ * {@code generate()}. The diagram generator is released once generation has finished, and the
+ * generation report is then written on a worker thread.
+ */
+public class LazyDiagramGroup extends DelegatingDiagramGroup {
+    /** Guarded by {@code this}. Set to {@code null} once generation has finished. */
+    private DiagramGenerator generator;
+
+    /** {@code generator} must not require the main thread. */
+    public LazyDiagramGroup(DiagramGenerator generator) {
+        super(generator.info());
+        Preconditions.checkArgument(
+                !generator.requiresMainThread(),
+                "Diagram group [%s] requires the main thread, so cannot be generated lazily.",
+                generator.info().groupId());
+
+        this.generator = generator;
+    }
+
+    @Override
+    public DiagramGroup loadDiagrams(
+            String id, Interactable.RecipeType recipeType, Object... stacks) {
+        if (!getDelegate().isPresent()) {
+            // Hidden diagram groups only respond to lookups of all diagrams, so there's no need to
+            // generate for anything else.
+            if (!id.equals(info.groupId())
+                    && !ConfigOptions.getDiagramGroupVisibility(info).isShown()) {
+                return newInstance(ImmutableList.of());
+            }
+
+            generateDelegate();
+        }
+
+        return super.loadDiagrams(id, recipeType, stacks);
+    }
+
+    /** Also releases the diagram generator, if the diagram group is regenerated before use. */
+    @Override
+    public synchronized void setDelegate(DiagramGroup diagramGroup) {
+        super.setDelegate(diagramGroup);
+        generator = null;
+    }
+
+    private synchronized void generateDelegate() {
+        if (generator == null) {
+            // Another thread already generated the diagram group.
+            return;
+        }
+
+        setDelegate(Registry.generate(generator));
+        Registry.INSTANCE.writeGenerationReportInBackground();
+    }
+}
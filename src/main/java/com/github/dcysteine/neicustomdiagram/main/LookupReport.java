@@ -0,0 +1,86 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import com.github.dcysteine.neicustomdiagram.main.config.Config;
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Singleton class that holds the {@link LookupStatistics} for each diagram group, and reports on
+ * them.
+ *
+ * <p>Statistics are kept by group ID, so they carry over when a diagram group is regenerated. The
+ * report is written in CSV format to {@link #REPORT_FILE_NAME} in the config directory.
+ */
+public enum LookupReport {
+    // Singleton class; enforced by being an enum.
+    INSTANCE;
+
+    public static final String REPORT_FILE_NAME = "NEICustomDiagram-lookup-report.csv";
+
+    /** Followed by one column per histogram bucket, named after the bucket's upper bound. */
+    public static final String CSV_HEADER =
+            "group_id,lookup_count,empty_lookup_count,total_time_ms,mean_us,p50_us,p90_us,p99_us,"
+                    + "max_us,mean_results,max_results";
+
+    private final ConcurrentMap<String, LookupStatistics> statistics = new ConcurrentHashMap<>();
+
+    /** Returns the statistics for {@code groupId}, creating them if needed. */
+    public LookupStatistics forGroup(String groupId) {
+        return statistics.computeIfAbsent(groupId, LookupStatistics::new);
+    }
+
+    /**
+     * Returns the statistics for all diagram groups that have had at least one lookup, slowest
+     * (by total time) first.
+     */
+    public ImmutableList<LookupStatistics> statistics() {
+        return ImmutableList.copyOf(
+                statistics.values().stream()
+                        .filter(s -> s.lookupCount() > 0)
+                        .sorted(Comparator.comparingLong(LookupStatistics::totalNanos).reversed())
+                        .collect(Collectors.toList()));
+    }
+
+    /** Writes the report file, and returns it. */
+    public File write() throws IOException {
+        StringBuilder header = new StringBuilder(CSV_HEADER);
+        for (int i = 0; i < LookupStatistics.BUCKET_COUNT; i++) {
+            header.append(",lt_").append(LookupStatistics.bucketUpperBoundMicros(i)).append("us");
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(header.toString());
+        statistics().forEach(s -> lines.add(toCsvLine(s)));
+
+        File reportFile = Config.getConfigDirectoryFile(REPORT_FILE_NAME);
+        Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+        return reportFile;
+    }
+
+    private static String toCsvLine(LookupStatistics s) {
+        StringBuilder line = new StringBuilder(
+                String.format(
+                        Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%d,%d,%.2f,%d",
+                        s.groupId(), s.lookupCount(), s.emptyLookupCount(),
+                        TimeUnit.NANOSECONDS.toMillis(s.totalNanos()), s.meanMicros(),
+                        s.percentileMicros(0.5), s.percentileMicros(0.9),
+                        s.percentileMicros(0.99), s.maxMicros(), s.meanResults(),
+                        s.maxResults()));
+        for (int i = 0; i < LookupStatistics.BUCKET_COUNT; i++) {
+            line.append(',').append(s.bucketCount(i));
+        }
+        return line.toString();
+    }
+}
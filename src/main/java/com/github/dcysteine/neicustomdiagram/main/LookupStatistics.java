@@ -0,0 +1,133 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free statistics about the lookups made on a single diagram group: a latency histogram, and
+ * result-size counters.
+ *
+ * <p>Latencies are recorded into {@link #BUCKET_COUNT} power-of-two buckets of microseconds, so
+ * recording a lookup costs only a few atomic additions. Percentiles are therefore approximate:
+ * they are rounded up to the upper bound of the bucket that they fall into.
+ *
+ * <p>Values are read without locking, so a read that races with a lookup may be very slightly
+ * inconsistent.
+ */
+public final class LookupStatistics {
+    /**
+     * Bucket 0 holds latencies under 1 microsecond; bucket {@code i} holds latencies from
+     * {@code 2^(i-1)} up to {@code 2^i} microseconds. The last bucket also holds everything above.
+     */
+    public static final int BUCKET_COUNT = 32;
+
+    private final String groupId;
+    private final AtomicLongArray buckets;
+    private final LongAdder lookupCount;
+    private final LongAdder emptyLookupCount;
+    private final LongAdder totalNanos;
+    private final LongAccumulator maxNanos;
+    private final LongAdder totalResults;
+    private final LongAccumulator maxResults;
+
+    LookupStatistics(String groupId) {
+        this.groupId = groupId;
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.lookupCount = new LongAdder();
+        this.emptyLookupCount = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new LongAccumulator(Math::max, 0L);
+        this.totalResults = new LongAdder();
+        this.maxResults = new LongAccumulator(Math::max, 0L);
+    }
+
+    /** Records a single lookup, which took {@code nanos} and returned {@code resultCount}. */
+    public void record(long nanos, int resultCount) {
+        buckets.incrementAndGet(bucket(nanos));
+        lookupCount.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+
+        if (resultCount == 0) {
+            emptyLookupCount.increment();
+        }
+        totalResults.add(resultCount);
+        maxResults.accumulate(resultCount);
+    }
+
+    public String groupId() {
+        return groupId;
+    }
+
+    public long lookupCount() {
+        return lookupCount.sum();
+    }
+
+    /** Returns the number of lookups that returned no diagrams. */
+    public long emptyLookupCount() {
+        return emptyLookupCount.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long meanMicros() {
+        long count = lookupCount();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos() / count);
+    }
+
+    /**
+     * Returns the approximate latency at {@code percentile} (between 0 and 1), in microseconds.
+     * See the class javadoc for how this is rounded.
+     */
+    public long percentileMicros(double percentile) {
+        long count = lookupCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBoundMicros(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    public long maxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    public double meanResults() {
+        long count = lookupCount();
+        return count == 0 ? 0 : (double) totalResults.sum() / count;
+    }
+
+    public long maxResults() {
+        return maxResults.get();
+    }
+
+    /** Returns the number of lookups in histogram bucket {@code bucket}. */
+    public long bucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    /** Returns the (exclusive) upper bound of histogram bucket {@code bucket}, in microseconds. */
+    public static long bucketUpperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    private static int bucket(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    }
+}
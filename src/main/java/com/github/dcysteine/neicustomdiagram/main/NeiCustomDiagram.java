@@ -12,6 +12,7 @@ import cpw.mods.fml.common.event.FMLLoadCompleteEvent;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.network.FMLNetworkEvent;
 import cpw.mods.fml.relauncher.Side;
+import net.minecraftforge.client.ClientCommandHandler;
 import net.minecraftforge.common.MinecraftForge;
 
 /** Main entry point for NEI Custom Diagram. */
@@ -56,11 +57,12 @@ public final class NeiCustomDiagram {
 
         Config.initialize();
         Registry.INSTANCE.initialize();
-        Config.initializeDiagramGroupVisibility(Registry.INSTANCE.infoList());
+        Config.initializeDiagramGroupOptions(Registry.INSTANCE.infoList());
         Config.saveConfig();
         NeiIntegration.INSTANCE.initialize(Registry.INSTANCE.infoList());
 
         MinecraftForge.EVENT_BUS.register(NeiIntegration.INSTANCE);
+        ClientCommandHandler.instance.registerCommand(new NeiCustomDiagramCommand());
         if (ConfigOptions.GENERATE_DIAGRAMS_ON_CLIENT_CONNECT.get()) {
             FMLCommonHandler.instance().bus().register(this);
         }
@@ -0,0 +1,105 @@
+package com.github.dcysteine.neicustomdiagram.main;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.ChatComponentText;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/** Client-side command for managing diagram groups at runtime. */
+public final class NeiCustomDiagramCommand extends CommandBase {
+    public static final String COMMAND_NAME = NeiCustomDiagram.MOD_ID;
+
+    public static final String REGENERATE_SUBCOMMAND = "regenerate";
+    public static final String DUMP_STATS_SUBCOMMAND = "dumpstats";
+    public static final String ALL_GROUPS = "all";
+
+    @Override
+    public String getCommandName() {
+        return COMMAND_NAME;
+    }
+
+    @Override
+    public String getCommandUsage(ICommandSender sender) {
+        return Lang.COMMAND.trans("usage");
+    }
+
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 0;
+    }
+
+    @Override
+    public boolean canCommandSenderUseCommand(ICommandSender sender) {
+        // Client-side command, so there's nothing to protect.
+        return true;
+    }
+
+    @Override
+    public void processCommand(ICommandSender sender, String[] args) {
+        if (args.length == 1 && args[0].equals(DUMP_STATS_SUBCOMMAND)) {
+            dumpStats(sender);
+            return;
+        }
+
+        if (args.length != 2 || !args[0].equals(REGENERATE_SUBCOMMAND)) {
+            throw new WrongUsageException(getCommandUsage(sender));
+        }
+
+        String groupId = args[1];
+        if (groupId.equals(ALL_GROUPS)) {
+            Registry.INSTANCE.regenerateAllDiagramGroups();
+            sender.addChatMessage(
+                    new ChatComponentText(Lang.COMMAND.trans("regeneratingall")));
+            return;
+        }
+
+        if (!Registry.INSTANCE.regenerateDiagramGroup(groupId)) {
+            throw new CommandException(Lang.COMMAND.transf("unknowngroup", groupId));
+        }
+        sender.addChatMessage(
+                new ChatComponentText(Lang.COMMAND.transf("regenerating", groupId)));
+    }
+
+    private static void dumpStats(ICommandSender sender) {
+        File reportFile;
+        try {
+            reportFile = LookupReport.INSTANCE.write();
+        } catch (IOException e) {
+            Logger.MOD.error("Could not write lookup report!", e);
+            throw new CommandException(Lang.COMMAND.transf("dumpstatsfailed", e.getMessage()));
+        }
+        sender.addChatMessage(
+                new ChatComponentText(
+                        Lang.COMMAND.transf("dumpedstats", reportFile.getAbsolutePath())));
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public List addTabCompletionOptions(ICommandSender sender, String[] args) {
+        switch (args.length) {
+            case 1:
+                return getListOfStringsMatchingLastWord(
+                        args, REGENERATE_SUBCOMMAND, DUMP_STATS_SUBCOMMAND);
+
+            case 2:
+                if (!args[0].equals(REGENERATE_SUBCOMMAND)) {
+                    return null;
+                }
+                return getListOfStringsFromIterableMatchingLastWord(
+                        args,
+                        ImmutableList.builder()
+                                .add(ALL_GROUPS)
+                                .addAll(Registry.INSTANCE.registeredGroupIds())
+                                .build());
+
+            default:
+                return null;
+        }
+    }
+}
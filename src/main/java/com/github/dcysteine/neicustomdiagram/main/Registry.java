@@ -4,6 +4,9 @@ import codechicken.nei.api.API;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGenerator;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroup;
 import com.github.dcysteine.neicustomdiagram.api.diagram.DiagramGroupInfo;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.ComponentDiagramMatcher;
+import com.github.dcysteine.neicustomdiagram.api.diagram.matcher.GlobalComponentIndex;
+import com.github.dcysteine.neicustomdiagram.generators.debug.lookupstatistics.DebugLookupStatistics;
 import com.github.dcysteine.neicustomdiagram.generators.debug.ruler.DebugRuler;
 import com.github.dcysteine.neicustomdiagram.generators.enderstorage.chestoverview.EnderStorageChestOverview;
 import com.github.dcysteine.neicustomdiagram.generators.enderstorage.tankoverview.EnderStorageTankOverview;
@@ -21,11 +24,20 @@ import com.github.dcysteine.neicustomdiagram.main.config.ConfigOptions;
 import com.github.dcysteine.neicustomdiagram.main.config.DiagramGroupVisibility;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import cpw.mods.fml.common.Loader;
 import cpw.mods.fml.common.ModContainer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -37,12 +49,16 @@ public enum Registry {
     /** This will be prepended to all group IDs, to ensure that they are globally unique. */
     public static final String GROUP_ID_PREFIX = "neicustomdiagram.diagramgroup.";
 
+    private static final String PROGRESS_TITLE = NeiCustomDiagram.MOD_NAME + ": diagram groups";
+
     private static final ImmutableList<RegistryEntry> entries;
 
     static {
         ImmutableList.Builder<RegistryEntry> entriesBuilder = ImmutableList.builder();
 
         // Add your diagram generator here!
+        entriesBuilder.add(
+                RegistryEntry.create("debug.lookupstatistics", DebugLookupStatistics::new));
         entriesBuilder.add(RegistryEntry.create("debug.ruler", DebugRuler::new));
         entriesBuilder.add(
                 RegistryEntry.create(
@@ -172,6 +188,19 @@ public enum Registry {
     private ImmutableList<DiagramGenerator> generators;
     private ImmutableList<DiagramGroupInfo> infoList;
 
+    /**
+     * Map of group ID to the diagram group registered with NEI for that ID, in registry order.
+     *
+     * <p>Diagram groups are registered by {@link #generateDiagramGroups()}, which runs on the
+     * network thread if diagrams are generated on client connect, while commands read this map on
+     * the client thread. So this map is never modified; it is replaced with an updated copy, and
+     * published via a volatile write.
+     */
+    private volatile ImmutableMap<String, DelegatingDiagramGroup> registeredDiagramGroups =
+            ImmutableMap.of();
+
+    private ExecutorService regenerationExecutor;
+
     /** This method is only intended to be called during mod initialization. */
     public void initialize() {
         Logger.MOD.info("Initializing diagram groups...");
@@ -208,9 +237,17 @@ public enum Registry {
         return infoList;
     }
 
+    /**
+     * Generates all diagram groups, honoring the lazy and background generation options.
+     *
+     * <p>Generated diagram groups cannot be cached on disk or shipped as a prebuilt bundle: diagrams
+     * and matchers hold client-side lambdas (interaction and draw callbacks, custom lookup
+     * functions) that have no serialized form, so they are always regenerated on startup.
+     */
     public void generateDiagramGroups() {
         Logger.MOD.info("Generating diagram groups...");
 
+        List<DiagramGenerator> enabledGenerators = new ArrayList<>();
         for (DiagramGenerator generator : generators) {
             DiagramGroupInfo info = generator.info();
             if (ConfigOptions.getDiagramGroupVisibility(info) == DiagramGroupVisibility.DISABLED) {
@@ -218,24 +255,318 @@ public enum Registry {
                 continue;
             }
 
-            // TODO display time elapsed?
-            Logger.MOD.info("Generating diagram group [{}]...", info.groupId());
-            DiagramGroup diagramGroup = generator.generate();
-            API.registerRecipeHandler(diagramGroup);
-            API.registerUsageHandler(diagramGroup);
-            Logger.MOD.info("Generated diagram group [{}]!", info.groupId());
+            enabledGenerators.add(generator);
+        }
+
+        if (ConfigOptions.BACKGROUND_GENERATION.get()) {
+            generateInBackground(enabledGenerators);
+            return;
+        }
+
+        List<DiagramGenerator> eagerGenerators =
+                enabledGenerators.stream()
+                        .filter(generator -> !isLazy(generator))
+                        .collect(Collectors.toList());
+        List<DiagramGroup> eagerDiagramGroups;
+        GenerationProgress.enableForCurrentThread();
+        try {
+            if (ConfigOptions.PARALLEL_GENERATION.get()) {
+                eagerDiagramGroups = generateInParallel(eagerGenerators);
+            } else {
+                eagerDiagramGroups = generateInSerial(eagerGenerators);
+            }
+        } finally {
+            GenerationProgress.disable();
+        }
+
+        // NEI handler registration is not thread-safe, so it must happen here on the generating
+        // thread. We also take care to register in registry order, so that NEI tab order is
+        // deterministic.
+        Iterator<DiagramGroup> eagerDiagramGroupsIterator = eagerDiagramGroups.iterator();
+        for (DiagramGenerator generator : enabledGenerators) {
+            if (isLazy(generator)) {
+                register(createLazyDiagramGroup(generator));
+            } else {
+                DelegatingDiagramGroup diagramGroup = new DelegatingDiagramGroup(generator.info());
+                diagramGroup.setDelegate(eagerDiagramGroupsIterator.next());
+                register(diagramGroup);
+            }
         }
 
+        rebuildGlobalComponentIndex();
+        GenerationReport.INSTANCE.write();
         Logger.MOD.info("Generation complete!");
     }
 
+    /**
+     * Registers placeholder diagram groups, and then generates the real diagram groups on a
+     * background thread, swapping each one in as it finishes.
+     *
+     * <p>Diagram generators that require the main thread are generated before this method returns.
+     */
+    private void generateInBackground(List<DiagramGenerator> generators) {
+        List<DiagramGenerator> backgroundGenerators = new ArrayList<>();
+        List<DelegatingDiagramGroup> backgroundDiagramGroups = new ArrayList<>();
+        for (DiagramGenerator generator : generators) {
+            if (isLazy(generator)) {
+                register(createLazyDiagramGroup(generator));
+                continue;
+            }
+
+            DelegatingDiagramGroup diagramGroup = new DelegatingDiagramGroup(generator.info());
+            register(diagramGroup);
+
+            if (generator.requiresMainThread()) {
+                diagramGroup.setDelegate(generate(generator));
+            } else {
+                backgroundGenerators.add(generator);
+                backgroundDiagramGroups.add(diagramGroup);
+            }
+        }
+
+        Thread thread = new Thread(
+                () -> {
+                    try {
+                        if (ConfigOptions.PARALLEL_GENERATION.get()) {
+                            List<DiagramGroup> diagramGroups =
+                                    generateInParallel(backgroundGenerators);
+                            for (int i = 0; i < diagramGroups.size(); i++) {
+                                backgroundDiagramGroups.get(i).setDelegate(diagramGroups.get(i));
+                            }
+                        } else {
+                            for (int i = 0; i < backgroundGenerators.size(); i++) {
+                                backgroundDiagramGroups.get(i)
+                                        .setDelegate(generate(backgroundGenerators.get(i)));
+                            }
+                        }
+                        rebuildGlobalComponentIndex();
+                        GenerationReport.INSTANCE.write();
+                        Logger.MOD.info("Background generation complete!");
+                    } catch (RuntimeException e) {
+                        Logger.MOD.error("Background generation failed!", e);
+                    }
+                },
+                NeiCustomDiagram.MOD_NAME + " generation");
+        thread.setDaemon(true);
+        thread.start();
+        Logger.MOD.info("Started background generation.");
+    }
+
+    private static List<DiagramGroup> generateInSerial(List<DiagramGenerator> generators) {
+        List<DiagramGroup> diagramGroups = new ArrayList<>();
+        try (GenerationProgress progress =
+                     GenerationProgress.start(PROGRESS_TITLE, generators.size())) {
+            for (DiagramGenerator generator : generators) {
+                diagramGroups.add(generate(generator));
+                progress.step();
+            }
+        }
+        return diagramGroups;
+    }
+
+    /**
+     * Generates diagram groups on a bounded {@link ForkJoinPool}.
+     *
+     * <p>Diagram generators that require the main thread are run on the calling thread, while the
+     * worker threads are busy with the rest. The returned list is in the same order as
+     * {@code generators}.
+     */
+    private static List<DiagramGroup> generateInParallel(List<DiagramGenerator> generators) {
+        int threadCount = ConfigOptions.GENERATION_THREAD_COUNT.get();
+        if (threadCount <= 0) {
+            threadCount = Runtime.getRuntime().availableProcessors();
+        }
+        Logger.MOD.info("Using up to {} worker threads for generation.", threadCount);
+
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try (GenerationProgress progress =
+                     GenerationProgress.start(PROGRESS_TITLE, generators.size())) {
+            List<ForkJoinTask<DiagramGroup>> tasks = new ArrayList<>();
+            for (DiagramGenerator generator : generators) {
+                tasks.add(
+                        generator.requiresMainThread()
+                                ? null : pool.submit(() -> generate(generator)));
+            }
+
+            DiagramGroup[] diagramGroups = new DiagramGroup[generators.size()];
+            for (int i = 0; i < generators.size(); i++) {
+                if (tasks.get(i) == null) {
+                    diagramGroups[i] = generate(generators.get(i));
+                    progress.step();
+                }
+            }
+            for (int i = 0; i < generators.size(); i++) {
+                if (tasks.get(i) != null) {
+                    diagramGroups[i] = tasks.get(i).join();
+                    progress.step();
+                }
+            }
+
+            return Arrays.asList(diagramGroups);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the group IDs of all diagram groups that have been registered with NEI, in registry
+     * order.
+     */
+    public ImmutableList<String> registeredGroupIds() {
+        return registeredDiagramGroups.keySet().asList();
+    }
+
+    /**
+     * Regenerates a registered diagram group on a worker thread, and then atomically swaps it into
+     * the diagram group registered with NEI. NEI handlers are not re-registered.
+     *
+     * <p>Diagram generators that require the main thread will be regenerated before this method
+     * returns. This method is only intended to be called from the main thread.
+     *
+     * @return {@code false} if no diagram group with the specified ID has been registered.
+     */
+    public boolean regenerateDiagramGroup(String groupId) {
+        DelegatingDiagramGroup diagramGroup = registeredDiagramGroups.get(groupId);
+        if (diagramGroup == null) {
+            return false;
+        }
+
+        // Our generators were released by cleanUp(), so construct a new one.
+        RegistryEntry entry =
+                entries.stream()
+                        .filter(e -> e.groupId().equals(groupId))
+                        .findFirst().get();
+        DiagramGenerator generator = entry.get();
+        if (generator.requiresMainThread()) {
+            regenerate(generator, diagramGroup);
+        } else {
+            getRegenerationExecutor().execute(() -> regenerate(generator, diagramGroup));
+        }
+        return true;
+    }
+
+    /** Regenerates all registered diagram groups. See {@link #regenerateDiagramGroup(String)}. */
+    public void regenerateAllDiagramGroups() {
+        registeredDiagramGroups.keySet().forEach(this::regenerateDiagramGroup);
+    }
+
+    private void regenerate(DiagramGenerator generator, DelegatingDiagramGroup diagramGroup) {
+        try {
+            diagramGroup.setDelegate(generate(generator));
+            if (!(diagramGroup instanceof LazyDiagramGroup)) {
+                rebuildGlobalComponentIndex();
+            }
+            GenerationReport.INSTANCE.write();
+            Logger.MOD.info("Regenerated diagram group [{}]!", generator.info().groupId());
+        } catch (RuntimeException e) {
+            Logger.MOD.error(
+                    "Failed to regenerate diagram group [{}]!", generator.info().groupId(), e);
+        }
+    }
+
+    /**
+     * Rebuilds the {@link GlobalComponentIndex} from all static diagram groups that have been
+     * generated so far. Lazy diagram groups are left out, as they are generated on whichever
+     * thread NEI looks up diagrams on, and rebuilding there would stall the lookup.
+     *
+     * <p>May be called from any thread.
+     */
+    private void rebuildGlobalComponentIndex() {
+        int indexedCount = GlobalComponentIndex.INSTANCE.rebuild(
+                registeredDiagramGroups.values().stream()
+                        .filter(diagramGroup -> !(diagramGroup instanceof LazyDiagramGroup))
+                        .map(DelegatingDiagramGroup::getDelegate)
+                        .filter(Optional::isPresent)
+                        .map(diagramGroup -> diagramGroup.get().matcher())
+                        .collect(Collectors.toList()));
+        Logger.MOD.info("Indexed {} diagram groups in the global component index.", indexedCount);
+    }
+
+    /**
+     * Writes the {@link GenerationReport} on a worker thread, so that callers on the lookup path do
+     * not wait for file I/O.
+     */
+    void writeGenerationReportInBackground() {
+        getRegenerationExecutor().execute(GenerationReport.INSTANCE::write);
+    }
+
+    private synchronized ExecutorService getRegenerationExecutor() {
+        if (regenerationExecutor == null) {
+            regenerationExecutor =
+                    Executors.newSingleThreadExecutor(
+                            runnable -> {
+                                Thread thread = new Thread(
+                                        runnable, NeiCustomDiagram.MOD_NAME + " regeneration");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        }
+        return regenerationExecutor;
+    }
+
+    /**
+     * NEI handler registration is not thread-safe, so this must only be called from the thread
+     * that is running {@link #generateDiagramGroups()}.
+     */
+    private void register(DelegatingDiagramGroup diagramGroup) {
+        API.registerRecipeHandler(diagramGroup);
+        API.registerUsageHandler(diagramGroup);
+        registeredDiagramGroups =
+                ImmutableMap.<String, DelegatingDiagramGroup>builder()
+                        .putAll(registeredDiagramGroups)
+                        .put(diagramGroup.info().groupId(), diagramGroup)
+                        .build();
+    }
+
+    /**
+     * Diagram generators that require the main thread are never lazy, as lazy generation happens
+     * on whichever thread NEI looks up diagrams on.
+     */
+    private static boolean isLazy(DiagramGenerator generator) {
+        return !generator.requiresMainThread()
+                && ConfigOptions.getDiagramGroupLazyGeneration(generator.info());
+    }
+
+    private static LazyDiagramGroup createLazyDiagramGroup(DiagramGenerator generator) {
+        Logger.MOD.info(
+                "Diagram group [{}] will be generated lazily.", generator.info().groupId());
+        return new LazyDiagramGroup(generator);
+    }
+
+    static DiagramGroup generate(DiagramGenerator generator) {
+        DiagramGroupInfo info = generator.info();
+
+        Logger.MOD.info("Generating diagram group [{}]...", info.groupId());
+        GenerationBudget.start();
+        DiagramGroup diagramGroup;
+        try {
+            diagramGroup = GenerationReport.INSTANCE.measure(generator);
+        } catch (GenerationBudget.CancelledException e) {
+            Logger.MOD.warn(
+                    "Cancelled generation of diagram group [{}]: {}. It will be left empty.",
+                    info.groupId(), e.getMessage());
+            return new DiagramGroup(info, ComponentDiagramMatcher.builder().build());
+        } finally {
+            GenerationBudget.stop();
+        }
+        Logger.MOD.info("Generated diagram group [{}]!", info.groupId());
+
+        return diagramGroup;
+    }
+
     /**
      * Call this after diagram generation to clear out static references so that objects can get
      * garbage-collected.
      *
      * <p>In particular, diagram generators can have quite heavy memory usage, and are no longer
      * used after diagram generation. This method will clear references to them so that they can be
-     * garbage-collected.
+     * garbage-collected. Regenerating a diagram group will construct a new diagram generator from
+     * its registry entry.
+     *
+     * <p>If background generation is enabled, it is safe to call this method while generation is
+     * still running; the background thread will release the generators once it finishes.
+     * Similarly, lazily-generated diagram groups will hold on to their generators until they are
+     * generated.
      */
     public void cleanUp() {
         generators = null;
@@ -9,10 +9,8 @@ import java.io.File;
 import java.util.List;
 
 public final class Config {
-    static final File CONFIG_FILE =
-            new File(
-                    (File) FMLInjectionData.data()[6],
-                    "config" + File.separator + "NEICustomDiagram.cfg");
+    static final File CONFIG_DIRECTORY = new File((File) FMLInjectionData.data()[6], "config");
+    static final File CONFIG_FILE = new File(CONFIG_DIRECTORY, "NEICustomDiagram.cfg");
     static final Configuration CONFIG = new Configuration(CONFIG_FILE);
 
     // Static class.
@@ -26,10 +24,10 @@ public final class Config {
     }
 
     /** This method is only intended to be called during mod initialization. */
-    public static void initializeDiagramGroupVisibility(List<DiagramGroupInfo> infoList) {
-        // Load diagram group visibility options, so that they get saved if they're missing from the
-        // config.
+    public static void initializeDiagramGroupOptions(List<DiagramGroupInfo> infoList) {
+        // Load diagram group options, so that they get saved if they're missing from the config.
         infoList.forEach(ConfigOptions::getDiagramGroupVisibility);
+        infoList.forEach(ConfigOptions::getDiagramGroupLazyGeneration);
     }
 
     public static void saveConfig() {
@@ -39,6 +37,11 @@ public final class Config {
         }
     }
 
+    /** Returns the file with the specified name in the Minecraft config directory. */
+    public static File getConfigDirectoryFile(String fileName) {
+        return new File(CONFIG_DIRECTORY, fileName);
+    }
+
     static String getConfigFilePath() {
         return CONFIG_FILE.getAbsolutePath();
     }
@@ -13,6 +13,30 @@ import java.util.function.Supplier;
 public final class ConfigOptions {
     private static final List<Option<?>> allOptions = new ArrayList<>();
 
+    public static final Option<Integer> ASYNC_LOOKUP_DEADLINE_MS =
+            new IntegerOption(
+                    Category.OPTIONS, "async_lookup_deadline_ms", 0,
+                    "Sets the maximum # of milliseconds to wait for slow dynamic diagram groups"
+                            + " when opening NEI."
+                            + "\nIf a lookup takes longer, it will continue on a worker thread,"
+                            + " and a placeholder will be shown;"
+                            + "\nreopen the page to see the results."
+                            + "\nSet to 0 to always wait for lookups to finish."
+                            + "\nChanging this option requires a restart to take effect.",
+                    true)
+                    .register();
+
+    public static final Option<Boolean> BACKGROUND_GENERATION =
+            new BooleanOption(
+                    Category.OPTIONS, "background_generation", false,
+                    "If this option is enabled, diagrams will be generated on a background"
+                            + " thread, instead of blocking loading."
+                            + "\nDiagram groups will show no diagrams until they have finished"
+                            + " generating."
+                            + "\nChanging this option requires a restart to take effect.",
+                    true)
+                    .register();
+
     public static final Option<Boolean> CTRL_FAST_FORWARD =
             new BooleanOption(
                     Category.OPTIONS, "ctrl_fast_forward", true,
@@ -34,6 +58,17 @@ public final class ConfigOptions {
                             + " number.")
                     .register();
 
+    public static final Option<Integer> DYNAMIC_DIAGRAM_CACHE_SIZE =
+            new IntegerOption(
+                    Category.OPTIONS, "dynamic_diagram_cache_size", 0,
+                    "Sets the maximum # of lookups to cache, for each diagram group that supports"
+                            + " caching dynamically generated diagrams."
+                            + "\nThis speeds up repeated lookups of the same item or fluid."
+                            + "\nSet to 0 to disable caching."
+                            + "\nChanging this option requires a restart to take effect.",
+                    true)
+                    .register();
+
     public static final Option<Boolean> GENERATE_DIAGRAMS_ON_CLIENT_CONNECT =
             new BooleanOption(
                     Category.OPTIONS, "generate_diagrams_on_client_connect", true,
@@ -45,6 +80,24 @@ public final class ConfigOptions {
                     true)
                     .register();
 
+    public static final Option<Integer> GENERATION_THREAD_COUNT =
+            new IntegerOption(
+                    Category.OPTIONS, "generation_thread_count", 0,
+                    "Sets the maximum # of worker threads used for parallel diagram generation."
+                            + "\nSet to 0 to use one thread per available processor."
+                            + "\nOnly has an effect if parallel_generation is enabled."
+                            + "\nChanging this option requires a restart to take effect.",
+                    true)
+                    .register();
+
+    public static final Option<Integer> GENERATION_TIME_BUDGET_SECONDS =
+            new IntegerOption(
+                    Category.OPTIONS, "generation_time_budget_seconds", 0,
+                    "Sets the maximum # of seconds that generating a single diagram group may take."
+                            + "\nDiagram groups that take longer will be cancelled and left empty."
+                            + "\nSet to 0 for no limit.")
+                    .register();
+
     public static final Option<String[]> HARD_DISABLED_DIAGRAM_GROUPS =
             new StringArrayOption(
                     Category.OPTIONS, "hard_disabled_diagram_groups", new String[0],
@@ -63,6 +116,28 @@ public final class ConfigOptions {
                     true)
                     .register();
 
+    public static final Option<Boolean> ON_DEMAND_DIAGRAMS =
+            new BooleanOption(
+                    Category.OPTIONS, "on_demand_diagrams", false,
+                    "If this option is enabled, some large diagram groups will build each diagram"
+                            + " only when it is first looked up."
+                            + "\nBuilt diagrams can be freed again if memory runs low."
+                            + "\nThis reduces memory usage, at the cost of slightly slower lookups."
+                            + "\nChanging this option requires a restart to take effect.",
+                    true)
+                    .register();
+
+    public static final Option<Boolean> PARALLEL_GENERATION =
+            new BooleanOption(
+                    Category.OPTIONS, "parallel_generation", false,
+                    "If this option is enabled, independent diagram groups will be generated"
+                            + " concurrently, on worker threads."
+                            + "\nThis can speed up loading considerably, but may be less stable"
+                            + " with some mods."
+                            + "\nChanging this option requires a restart to take effect.",
+                    true)
+                    .register();
+
     public static final Option<Integer> SCROLL_SPEED =
             new IntegerOption(
                     Category.OPTIONS, "scroll_speed", 12,
@@ -100,7 +175,8 @@ public final class ConfigOptions {
 
     public enum Category {
         OPTIONS("options"),
-        DIAGRAM_GROUPS("diagram_groups");
+        DIAGRAM_GROUPS("diagram_groups"),
+        LAZY_GENERATION("lazy_generation");
 
         private final String name;
 
@@ -252,6 +328,20 @@ public final class ConfigOptions {
                         .append("\n * ").append(visibility.toString()));
         Config.CONFIG.setCategoryComment(
                 Category.DIAGRAM_GROUPS.toString(), diagramGroupCategoryCommentBuilder.toString());
+
+        Config.CONFIG.setCategoryComment(
+                Category.LAZY_GENERATION.toString(),
+                "Lazy generation options for diagram groups."
+                        + "\nDiagram groups with lazy generation enabled will not be generated on"
+                        + " load,"
+                        + "\nbut rather the first time that they are actually looked up."
+                        + "\nThis saves time and memory for diagram groups that you rarely view,"
+                        + " at the cost of a delay on first lookup."
+                        + "\nBy default, only diagram groups that are always hidden are generated"
+                        + " lazily."
+                        + "\nThis option is ignored for diagram groups that must be generated on"
+                        + " the main thread."
+                        + "\nChanging these options requires a restart to take effect.");
     }
 
     public static ImmutableList<Option<?>> getAllOptions() {
@@ -284,6 +374,27 @@ public final class ConfigOptions {
         return DiagramGroupVisibility.getByName(visibilityName);
     }
 
+    public static boolean getDiagramGroupLazyGeneration(DiagramGroupInfo info) {
+        Property property =
+                Config.CONFIG.get(
+                        Category.LAZY_GENERATION.toString(), info.groupId(),
+                        getDefaultLazyGeneration(info),
+                        buildDiagramGroupLazyGenerationComment(info));
+        property.setRequiresMcRestart(true);
+        return property.getBoolean();
+    }
+
+    /**
+     * By default, only lazily generate diagram groups that are never shown for ordinary lookups.
+     *
+     * <p>Lazy generation runs synchronously on the first lookup, which freezes the NEI GUI while it
+     * runs. Groups that are shown while a key is held would hit that on an ordinary lookup, so
+     * users must opt in to lazy generation for them.
+     */
+    private static boolean getDefaultLazyGeneration(DiagramGroupInfo info) {
+        return info.defaultVisibility() == DiagramGroupVisibility.ALWAYS_HIDDEN;
+    }
+
     private static String buildDefaultComment(Object defaultValue) {
         String toString;
         if (defaultValue instanceof String[]) {
@@ -309,4 +420,10 @@ public final class ConfigOptions {
         builder.append(buildDefaultComment(info.defaultVisibility()));
         return builder.toString();
     }
+
+    private static String buildDiagramGroupLazyGenerationComment(DiagramGroupInfo info) {
+        return String.format(
+                "Sets whether the %s diagram group is generated lazily.", info.groupName())
+                + buildDefaultComment(getDefaultLazyGeneration(info));
+    }
 }
@@ -40,6 +40,9 @@ public final class OreDictUtil {
      * If {@component} is an {@link ItemComponent} with {@link ItemComponent#hasWildcardDamage()}
      * equal to {@code true}, then returns a list of all valid item damage permutations of that
      * item; otherwise, returns a list containing just {@code component}.
+     *
+     * <p>There is no need to call this just to look up diagrams by every permutation; use
+     * {@code ComponentDiagramMatcher.Builder.buildWildcard()} instead.
      */
     public static List<Component> getPermutations(Component component) {
         if (component.type() != Component.ComponentType.ITEM) {
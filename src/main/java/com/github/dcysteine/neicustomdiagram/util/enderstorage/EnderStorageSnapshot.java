@@ -0,0 +1,29 @@
+package com.github.dcysteine.neicustomdiagram.util.enderstorage;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+/**
+ * Copy of the contents of one owner's ender chests and ender tanks.
+ *
+ * <p>Snapshots are taken on the client thread, and hold their own copies of all stacks, so that
+ * they can be read from any thread. Do not modify the returned stacks.
+ */
+@AutoValue
+public abstract class EnderStorageSnapshot {
+    public static final EnderStorageSnapshot EMPTY = create(ImmutableMap.of(), ImmutableMap.of());
+
+    public static EnderStorageSnapshot create(
+            ImmutableMap<EnderStorageFrequency, ImmutableMap<Integer, ItemStack>> chests,
+            ImmutableMap<EnderStorageFrequency, FluidStack> tanks) {
+        return new AutoValue_EnderStorageSnapshot(chests, tanks);
+    }
+
+    /** Map of frequency to slot to item stack, for each non-empty ender chest. */
+    public abstract ImmutableMap<EnderStorageFrequency, ImmutableMap<Integer, ItemStack>> chests();
+
+    /** Map of frequency to fluid stack, for each non-empty ender tank. */
+    public abstract ImmutableMap<EnderStorageFrequency, FluidStack> tanks();
+}
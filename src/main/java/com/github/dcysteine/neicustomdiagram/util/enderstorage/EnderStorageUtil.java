@@ -7,14 +7,16 @@ import codechicken.enderstorage.storage.item.EnderItemStorage;
 import codechicken.enderstorage.storage.liquid.EnderLiquidStorage;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
 import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+import com.google.common.collect.ImmutableMap;
 import net.minecraft.client.Minecraft;
 import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
 import net.minecraftforge.fluids.FluidStack;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class EnderStorageUtil {
     public static final int MAX_FREQUENCY = 0xFFF;
@@ -46,6 +48,12 @@ public final class EnderStorageUtil {
         }
     }
 
+    /** Latest snapshot for each owner. Replaced on the client thread, and read from any thread. */
+    private static final Map<Owner, EnderStorageSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /** Owners for which a snapshot has been scheduled on the client thread, but not yet taken. */
+    private static final Set<Owner> scheduledSnapshots = ConcurrentHashMap.newKeySet();
+
     // Static class.
     private EnderStorageUtil() {}
 
@@ -93,38 +101,75 @@ public final class EnderStorageUtil {
         return Optional.empty();
     }
 
-    /** Returns a map of frequency to ender chest inventory. */
-    public static Map<EnderStorageFrequency, EnderItemStorage> getEnderChests(Owner owner) {
-        String ownerParam = owner.stringParam();
-
-        // Use LinkedHashMap so that the resulting map iterates through keys in insertion order.
-        Map<EnderStorageFrequency, EnderItemStorage> map = new LinkedHashMap<>();
-        IntStream.rangeClosed(0, MAX_FREQUENCY)
-                .forEach(
-                        freq -> map.put(
-                                EnderStorageFrequency.create(freq),
-                                (EnderItemStorage) getManager().getStorage(
-                                        ownerParam, freq, Type.CHEST.stringParam)));
+    /**
+     * Returns a snapshot of the ender chests and ender tanks of {@code owner}. May be called from
+     * any thread.
+     *
+     * <p>Ender Storage's managers are not thread-safe; they even lazily create storage when read.
+     * So they are only ever read on the client thread. If called on the client thread, this takes
+     * and returns a new snapshot. Otherwise, it schedules a new snapshot to be taken on the client
+     * thread, and returns the latest one without waiting, as the client thread may itself be
+     * waiting for this lookup.
+     */
+    public static EnderStorageSnapshot getSnapshot(Owner owner) {
+        Minecraft minecraft = Minecraft.getMinecraft();
+        // isCallingFromMinecraftThread()
+        if (minecraft.func_152345_ab()) {
+            return takeSnapshot(owner);
+        }
 
-        return map;
+        if (scheduledSnapshots.add(owner)) {
+            // addScheduledTask()
+            minecraft.func_152344_a(
+                    () -> {
+                        scheduledSnapshots.remove(owner);
+                        takeSnapshot(owner);
+                    });
+        }
+        return snapshots.getOrDefault(owner, EnderStorageSnapshot.EMPTY);
     }
 
-    /** Returns a map of frequency to ender tank inventory. */
-    public static Map<EnderStorageFrequency, EnderLiquidStorage> getEnderTanks(Owner owner) {
+    /** Must be called on the client thread. */
+    private static EnderStorageSnapshot takeSnapshot(Owner owner) {
         String ownerParam = owner.stringParam();
+        EnderStorageManager manager = getManager();
+
+        // ImmutableMap iterates through keys in insertion order.
+        ImmutableMap.Builder<EnderStorageFrequency, ImmutableMap<Integer, ItemStack>> chests =
+                ImmutableMap.builder();
+        for (int freq = 0; freq <= MAX_FREQUENCY; freq++) {
+            EnderItemStorage storage =
+                    (EnderItemStorage) manager.getStorage(ownerParam, freq, Type.CHEST.stringParam);
+            ImmutableMap.Builder<Integer, ItemStack> inventory = ImmutableMap.builder();
+            for (int i = 0; i < getChestSize(); i++) {
+                ItemStack itemStack = storage.getStackInSlot(i);
+                if (itemStack != null) {
+                    inventory.put(i, itemStack.copy());
+                }
+            }
+
+            ImmutableMap<Integer, ItemStack> inventoryCopy = inventory.build();
+            if (!inventoryCopy.isEmpty()) {
+                chests.put(EnderStorageFrequency.create(freq), inventoryCopy);
+            }
+        }
+
+        ImmutableMap.Builder<EnderStorageFrequency, FluidStack> tanks = ImmutableMap.builder();
+        for (int i = 0; i <= MAX_FREQUENCY; i++) {
+            // Ender tanks seem to have their frequency colours in reverse order.
+            int freq = reverseInt(i);
+            EnderLiquidStorage storage =
+                    (EnderLiquidStorage) manager.getStorage(
+                            ownerParam, freq, Type.TANK.stringParam);
+            FluidStack fluidStack = storage.getFluid();
+            if (fluidStack != null && fluidStack.amount > 0) {
+                tanks.put(EnderStorageFrequency.createReverse(freq), fluidStack.copy());
+            }
+        }
 
-        // Use LinkedHashMap so that the resulting map iterates through keys in insertion order.
-        Map<EnderStorageFrequency, EnderLiquidStorage> map = new LinkedHashMap<>();
-        IntStream.rangeClosed(0, MAX_FREQUENCY)
-                // Ender tanks seem to have their frequency colours in reverse order.
-                .map(EnderStorageUtil::reverseInt)
-                .forEach(
-                        freq -> map.put(
-                                EnderStorageFrequency.createReverse(freq),
-                                (EnderLiquidStorage) getManager().getStorage(
-                                        ownerParam, freq, Type.TANK.stringParam)));
-
-        return map;
+        EnderStorageSnapshot snapshot = EnderStorageSnapshot.create(chests.build(), tanks.build());
+        snapshots.put(owner, snapshot);
+        return snapshot;
     }
 
     /**
@@ -143,20 +188,6 @@ public final class EnderStorageUtil {
         return EnderItemStoragePlugin.sizes[EnderItemStoragePlugin.configSize];
     }
 
-    public static boolean isEmpty(EnderItemStorage storage) {
-        for (int i = 0; i < getChestSize(); i++) {
-            if (storage.getStackInSlot(i) != null) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    public static boolean isEmpty(EnderLiquidStorage storage) {
-        FluidStack fluidStack = storage.getFluid();
-        return fluidStack == null || fluidStack.amount == 0;
-    }
-
     /**
      * Try to return the server instance when possible (which is for the host of a
      * single-player or LAN world).
@@ -0,0 +1,344 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.Component;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ImmutableNbtWrapper;
+import com.github.dcysteine.neicustomdiagram.api.diagram.component.ItemComponent;
+import com.github.dcysteine.neicustomdiagram.api.diagram.interactable.Interactable;
+import com.github.dcysteine.neicustomdiagram.api.draw.Point;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress test that makes concurrent {@code match} calls against each thread-safe matcher, and
+ * checks every result against a single-threaded run.
+ *
+ * <p>Components are {@link TestItemComponent} test doubles, so that no Minecraft items need to be
+ * registered. Every tenth component also has NBT, so that both halves of
+ * {@link PackedComponentDiagramMatcher} are used. Each diagram also has one component of its own,
+ * so that a lookup returning the wrong diagram is caught.
+ */
+public class ConcurrentMatchTest {
+    private static final int COMPONENT_COUNT = 2_000;
+    private static final int DIAGRAM_COUNT = 500;
+    private static final int COMPONENTS_PER_DIAGRAM = 8;
+    private static final int THREAD_COUNT = 8;
+    private static final int ROUNDS = 20;
+
+    /** Damage values per item ID, for the shared components. */
+    private static final int DAMAGE_VALUES = 16;
+
+    /** Only diagram {@code i} has the component with this item ID plus {@code i}. */
+    private static final int UNIQUE_ITEM_ID = 10_000;
+
+    /** Queries also include components that no matcher knows about. */
+    private static final int SHARED_QUERY_COUNT = COMPONENT_COUNT + 100;
+    private static final int QUERY_COUNT = SHARED_QUERY_COUNT + DIAGRAM_COUNT;
+
+    private static ImmutableList<Component> queries;
+    private static ImmutableList<Diagram> diagrams;
+
+    /**
+     * Test double for {@link ItemComponent} with a fixed item ID, so that no {@link Item} has to be
+     * registered.
+     * Only the methods that matchers use are supported.
+     */
+    private static final class TestItemComponent extends ItemComponent {
+        private final int itemId;
+        private final int damage;
+        private final Optional<ImmutableNbtWrapper> nbtWrapper;
+
+        private TestItemComponent(
+                int itemId, int damage, Optional<ImmutableNbtWrapper> nbtWrapper) {
+            this.itemId = itemId;
+            this.damage = damage;
+            this.nbtWrapper = nbtWrapper;
+        }
+
+        static TestItemComponent create(int itemId, int damage) {
+            return new TestItemComponent(itemId, damage, Optional.empty());
+        }
+
+        static TestItemComponent create(int itemId, int damage, NBTTagCompound nbt) {
+            return new TestItemComponent(
+                    itemId, damage, Optional.of(ImmutableNbtWrapper.create(nbt)));
+        }
+
+        @Override
+        public Item item() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int itemId() {
+            return itemId;
+        }
+
+        @Override
+        public int damage() {
+            return damage;
+        }
+
+        @Override
+        public Optional<ImmutableNbtWrapper> nbtWrapper() {
+            return nbtWrapper;
+        }
+
+        @Override
+        public ItemComponent withNbt(NBTTagCompound nbt) {
+            return create(itemId, damage, nbt);
+        }
+
+        @Override
+        public ItemComponent withoutNbt() {
+            return create(itemId, damage);
+        }
+
+        @Override
+        public ItemStack stack(int stackSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String description() {
+            return String.format(
+                    "#%d/%d%s", itemId, damage, nbtWrapper.isPresent() ? " (NBT)" : "");
+        }
+
+        @Override
+        public void interact(Interactable.RecipeType recipeType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void draw(Point pos) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int compareTo(Component other) {
+            TestItemComponent otherItem = (TestItemComponent) other;
+            int result = Integer.compare(itemId, otherItem.itemId);
+            if (result == 0) {
+                result = Integer.compare(damage, otherItem.damage);
+            }
+            return result == 0
+                    ? ImmutableNbtWrapper.COMPARATOR.compare(
+                            nbtWrapper.orElse(null), otherItem.nbtWrapper.orElse(null))
+                    : result;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof TestItemComponent)) {
+                return false;
+            }
+            TestItemComponent otherItem = (TestItemComponent) other;
+            return itemId == otherItem.itemId
+                    && damage == otherItem.damage
+                    && nbtWrapper.equals(otherItem.nbtWrapper);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(itemId, damage, nbtWrapper);
+        }
+    }
+
+    @BeforeClass
+    public static void setUp() {
+        ImmutableList.Builder<Component> queriesBuilder = ImmutableList.builder();
+        for (int i = 0; i < SHARED_QUERY_COUNT; i++) {
+            int itemId = i / DAMAGE_VALUES;
+            int damage = i % DAMAGE_VALUES;
+            if (i % 10 == 0) {
+                NBTTagCompound nbt = new NBTTagCompound();
+                nbt.setInteger("index", i);
+                queriesBuilder.add(TestItemComponent.create(itemId, damage, nbt));
+            } else {
+                queriesBuilder.add(TestItemComponent.create(itemId, damage));
+            }
+        }
+        for (int i = 0; i < DIAGRAM_COUNT; i++) {
+            queriesBuilder.add(TestItemComponent.create(UNIQUE_ITEM_ID + i, 0));
+        }
+        queries = queriesBuilder.build();
+
+        ImmutableList.Builder<Diagram> diagramsBuilder = ImmutableList.builder();
+        for (int i = 0; i < DIAGRAM_COUNT; i++) {
+            diagramsBuilder.add(Diagram.builder().build());
+        }
+        diagrams = diagramsBuilder.build();
+    }
+
+    @Test
+    public void componentDiagramMatcher() throws Exception {
+        checkConcurrentMatches(buildComponentMatcher().build());
+    }
+
+    @Test
+    public void packedComponentDiagramMatcher() throws Exception {
+        checkConcurrentMatches(buildComponentMatcher().buildPacked());
+    }
+
+    /**
+     * Only components without NBT and with an even query index share diagrams, and diagrams are
+     * built on demand.
+     */
+    @Test
+    public void onDemandDiagramMatcher() throws Exception {
+        ImmutableSet.Builder<Integer> keysBuilder = ImmutableSet.builder();
+        ImmutableMap.Builder<Integer, Diagram> diagramsByKeyBuilder = ImmutableMap.builder();
+        for (int i = 0; i < COMPONENT_COUNT; i += 2) {
+            keysBuilder.add(i);
+            diagramsByKeyBuilder.put(i, diagrams.get(i % DIAGRAM_COUNT));
+        }
+        for (int i = 0; i < DIAGRAM_COUNT; i++) {
+            keysBuilder.add(SHARED_QUERY_COUNT + i);
+            diagramsByKeyBuilder.put(SHARED_QUERY_COUNT + i, diagrams.get(i));
+        }
+        ImmutableMap<Integer, Diagram> diagramsByKey = diagramsByKeyBuilder.build();
+
+        OnDemandDiagramMatcher<Integer> matcher =
+                new OnDemandDiagramMatcher<Integer>(
+                        keysBuilder.build(),
+                        (recipeType, component) ->
+                                component.nbtWrapper().isPresent()
+                                        ? Optional.empty()
+                                        : Optional.of(queryIndex((ItemComponent) component)),
+                        diagramsByKey::get, ImmutableMap.of());
+        checkConcurrentMatches(matcher);
+    }
+
+    /** Returns the index of {@code component} in {@link #queries}, ignoring NBT. */
+    private static int queryIndex(ItemComponent component) {
+        if (component.itemId() >= UNIQUE_ITEM_ID) {
+            return SHARED_QUERY_COUNT + component.itemId() - UNIQUE_ITEM_ID;
+        }
+        return component.itemId() * DAMAGE_VALUES + component.damage();
+    }
+
+    private static ComponentDiagramMatcher.Builder buildComponentMatcher() {
+        Random random = new Random(0);
+        Interactable.RecipeType[] recipeTypes = Interactable.RecipeType.values();
+
+        ComponentDiagramMatcher.Builder builder = ComponentDiagramMatcher.builder();
+        for (int d = 0; d < DIAGRAM_COUNT; d++) {
+            ComponentDiagramMatcher.Builder.DiagramSubBuilder subBuilder =
+                    builder.addDiagram(diagrams.get(d));
+            subBuilder.addComponent(queries.get(SHARED_QUERY_COUNT + d));
+            for (int i = 0; i < COMPONENTS_PER_DIAGRAM; i++) {
+                Component component = queries.get(random.nextInt(COMPONENT_COUNT));
+                int roll = random.nextInt(recipeTypes.length + 1);
+                if (roll == recipeTypes.length) {
+                    subBuilder.addComponent(component);
+                } else {
+                    subBuilder.addComponent(recipeTypes[roll], component);
+                }
+            }
+        }
+        return builder;
+    }
+
+    private static void checkConcurrentMatches(DiagramMatcher matcher) throws Exception {
+        Interactable.RecipeType[] recipeTypes = Interactable.RecipeType.values();
+        List<List<List<Diagram>>> expected = new ArrayList<>();
+        int nonEmptyCount = 0;
+        for (Interactable.RecipeType recipeType : recipeTypes) {
+            List<List<Diagram>> results = new ArrayList<>();
+            for (Component component : queries) {
+                List<Diagram> result = ImmutableList.copyOf(matcher.match(recipeType, component));
+                results.add(result);
+                if (!result.isEmpty()) {
+                    nonEmptyCount++;
+                }
+            }
+            expected.add(results);
+        }
+        assertTrue("Test data should produce some matches.", nonEmptyCount > 0);
+        for (Interactable.RecipeType recipeType : recipeTypes) {
+            for (int i = 0; i < DIAGRAM_COUNT; i++) {
+                assertEquals(
+                        ImmutableList.of(diagrams.get(i)),
+                        expected.get(recipeType.ordinal()).get(SHARED_QUERY_COUNT + i));
+            }
+        }
+
+        ConcurrentLinkedQueue<String> mismatches = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                Random random = new Random(t);
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    start.await();
+                                    runQueries(matcher, expected, random, mismatches);
+                                    return null;
+                                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(ImmutableList.of(), ImmutableList.copyOf(mismatches));
+    }
+
+    /** Each thread runs all queries in its own shuffled order, to vary the interleaving. */
+    private static void runQueries(
+            DiagramMatcher matcher, List<List<List<Diagram>>> expected, Random random,
+            ConcurrentLinkedQueue<String> mismatches) {
+        Interactable.RecipeType[] recipeTypes = Interactable.RecipeType.values();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < recipeTypes.length * QUERY_COUNT; i++) {
+            order.add(i);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Collections.shuffle(order, random);
+            for (int i : order) {
+                int recipeTypeIndex = i / QUERY_COUNT;
+                int queryIndex = i % QUERY_COUNT;
+                List<Diagram> result =
+                        ImmutableList.copyOf(
+                                matcher.match(
+                                        recipeTypes[recipeTypeIndex], queries.get(queryIndex)));
+                if (!result.equals(expected.get(recipeTypeIndex).get(queryIndex))) {
+                    mismatches.add(
+                            String.format(
+                                    "%s %d: got %d diagrams", recipeTypes[recipeTypeIndex],
+                                    queryIndex, result.size()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.dcysteine.neicustomdiagram.api.diagram.matcher;
+
+import com.github.dcysteine.neicustomdiagram.api.diagram.Diagram;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that an {@link OnDemandDiagramMatcher} which has built all of its diagrams up front no
+ * longer references its diagram factory, so that whatever the factory captured can be reclaimed
+ * once generation is done.
+ */
+public class DiagramFactoryReclamationTest {
+    private static final int KEY_COUNT = 100;
+    private static final int GC_ATTEMPTS = 20;
+
+    @Test
+    public void builtMatcherReleasesFactoryOwner() {
+        List<OnDemandDiagramMatcher<Integer>> matchers = new ArrayList<>();
+        WeakReference<DiagramOwner> owner = buildMatcher(false, matchers);
+        OnDemandDiagramMatcher<Integer> matcher = matchers.get(0);
+
+        assertTrue(isCleared(owner));
+        assertEquals(KEY_COUNT, matcher.all().size());
+        assertNotNull(matcher.get(0));
+    }
+
+    /** Checks that this test can detect a leak, so that the test above is meaningful. */
+    @Test
+    public void onDemandMatcherKeepsFactoryOwner() {
+        List<OnDemandDiagramMatcher<Integer>> matchers = new ArrayList<>();
+        WeakReference<DiagramOwner> owner = buildMatcher(true, matchers);
+        OnDemandDiagramMatcher<Integer> matcher = matchers.get(0);
+
+        assertFalse(isCleared(owner));
+        assertEquals(KEY_COUNT, matcher.all().size());
+    }
+
+    /**
+     * Builds a matcher into {@code matchers}, calls {@code all()} on it so that every diagram has
+     * been built, and returns a weak reference to the owner that its diagram factory captured.
+     * The owner is only ever strongly referenced from within this method.
+     */
+    private static WeakReference<DiagramOwner> buildMatcher(
+            boolean onDemand, List<OnDemandDiagramMatcher<Integer>> matchers) {
+        DiagramOwner owner = new DiagramOwner();
+        OnDemandDiagramMatcher.Builder<Integer> builder =
+                new OnDemandDiagramMatcher.Builder<>(owner::buildDiagram, onDemand);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            builder.addKey(i);
+        }
+
+        OnDemandDiagramMatcher<Integer> matcher =
+                builder.build((recipeType, component) -> Optional.empty());
+        assertEquals(KEY_COUNT, matcher.all().size());
+        matchers.add(matcher);
+        return new WeakReference<>(owner);
+    }
+
+    private static boolean isCleared(WeakReference<?> reference) {
+        for (int i = 0; i < GC_ATTEMPTS; i++) {
+            System.gc();
+            if (reference.get() == null) {
+                return true;
+            }
+
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /** Stands in for a diagram generator, which holds state that is only needed for generation. */
+    private static final class DiagramOwner {
+        private final byte[] generationState = new byte[1 << 20];
+
+        private Diagram buildDiagram(Integer key) {
+            generationState[key] = 1;
+            return Diagram.builder().build();
+        }
+    }
+}